@@ -0,0 +1,104 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.Board;
+import com.web.chess.Piece;
+import com.web.chess.engine.MoveList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the Board methods the server runs on every click. Run with -prof gc to also report
+ * bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /**
+     * A game set up from a FEN, with the side to move given in the GUI's color convention.
+     */
+    @State(Scope.Thread)
+    public static class Game {
+
+        @Param({
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"})
+        public String fen;
+
+        Board board;
+        int color;
+        final MoveList moves = new MoveList();
+
+        @Setup
+        public void setup() {
+            load(fen);
+        }
+
+        void load(String position) {
+            board = new Board(position);
+            color = board.getTurn().equals("w") ? -1 : 1;
+        }
+    }
+
+    /**
+     * A game where the side to move is in check, which is the only time detectCheckmate runs.
+     */
+    @State(Scope.Thread)
+    public static class CheckedGame {
+
+        @Param({
+                "rnbqkbnr/ppp2ppp/8/1B1pp3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3",
+                "r1bqkbnr/pppp1Qpp/2n5/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4"})
+        public String fen;
+
+        final Game game = new Game();
+
+        @Setup
+        public void setup() {
+            game.load(fen);
+        }
+    }
+
+    @Benchmark
+    public void legalMovesAllPieces(Game game, Blackhole blackhole) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (Piece.color(game.board.pieceAt(row, col)) == game.color) {
+                    game.board.legalMoves(row, col, game.moves);
+                    blackhole.consume(game.moves.size());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int detectChecks(Game game) {
+        return game.board.detectChecks(game.color);
+    }
+
+    @Benchmark
+    public boolean detectStalemate(Game game) {
+        return game.board.detectStalemate(game.color);
+    }
+
+    @Benchmark
+    public boolean detectCheckmate(CheckedGame checked) {
+        Game game = checked.game;
+        return game.board.detectCheckmate(game.color);
+    }
+}
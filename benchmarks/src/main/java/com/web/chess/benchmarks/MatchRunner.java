@@ -0,0 +1,434 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.engine.Position;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a match between two UCI engines, usually two builds of UciApplication, to measure the
+ * strength effect of an engine change. Games run in parallel, one per worker thread, and each
+ * worker keeps its own pair of engine processes. Both engines think on the worker's core in
+ * turn, so one worker per core keeps the machine busy without the engines stealing time from each
+ * other.
+ *
+ * Every opening of the EPD suite is played twice, once with each engine as white, in order. Games
+ * end by the rules (mate, stalemate, fifty moves, threefold repetition, insufficient material) or
+ * by forfeit: an illegal move, a crash, or running out of time. With -sprt the match stops once
+ * the test accepts either hypothesis; otherwise it plays all -games. Each game is appended to the
+ * -out file as it finishes, as NDJSON if the name ends in .ndjson and CSV otherwise, and a summary
+ * with the score, Elo and log-likelihood ratio is printed after every game.
+ *
+ * Usage: MatchRunner -engine name=NAME cmd=COMMAND [option.NAME=VALUE ...] -engine ...
+ *        -openings FILE.epd [-games 1000] [-concurrency cores] [-tc 10+0.1]
+ *        [-sprt elo0=0 elo1=5 alpha=0.05 beta=0.05] [-out results.csv]
+ *
+ * The command is split on spaces, for example cmd="java -cp target/classes com.web.chess.UciApplication".
+ * The -tc base and increment are in seconds. Results are from the first engine's point of view.
+ */
+public class MatchRunner {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Slack on top of an engine's clock before a move that never comes is given up on.
+     */
+    private static final long TIMEOUT_GRACE_MS = 5_000;
+
+    private record EngineConfig(String name, List<String> command, Map<String, String> options) {
+    }
+
+    /**
+     * One finished game. Results are "1-0", "0-1" or "1/2-1/2".
+     */
+    private record GameRecord(int game, String white, String black, String result, String reason, int plies,
+                              String opening, long millis) {
+    }
+
+    private final List<EngineConfig> engines;
+    private final List<String> openings;
+    private final int games;
+    private final long baseTime;
+    private final long increment;
+    private final Sprt sprt;
+    private final BufferedWriter output;
+    private final boolean ndjson;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private int wins;
+    private int draws;
+    private int losses;
+
+    private MatchRunner(List<EngineConfig> engines, List<String> openings, int games, long baseTime, long increment,
+                        Sprt sprt, BufferedWriter output, boolean ndjson) {
+        this.engines = engines;
+        this.openings = openings;
+        this.games = games;
+        this.baseTime = baseTime;
+        this.increment = increment;
+        this.sprt = sprt;
+        this.output = output;
+        this.ndjson = ndjson;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<EngineConfig> engines = new ArrayList<>();
+        Map<String, List<String>> flags = new HashMap<>();
+        for (int i = 0; i < args.length; ) {
+            String flag = args[i++];
+            List<String> values = new ArrayList<>();
+            while (i < args.length && !args[i].startsWith("-")) {
+                values.add(args[i++]);
+            }
+            if (flag.equals("-engine")) {
+                engines.add(engine(values));
+            } else {
+                flags.put(flag, values);
+            }
+        }
+        if (engines.size() != 2 || !flags.containsKey("-openings")) {
+            System.err.println("Usage: MatchRunner -engine name=NAME cmd=COMMAND [option.NAME=VALUE ...] -engine ...");
+            System.err.println("       -openings FILE.epd [-games 1000] [-concurrency cores] [-tc 10+0.1]");
+            System.err.println("       [-sprt elo0=0 elo1=5 alpha=0.05 beta=0.05] [-out results.csv]");
+            System.exit(2);
+        }
+        List<String> openings = readOpenings(Path.of(flags.get("-openings").get(0)));
+        int games = Integer.parseInt(first(flags, "-games", "1000"));
+        int concurrency = Integer.parseInt(first(flags, "-concurrency",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String[] tc = first(flags, "-tc", "10+0.1").split("\\+");
+        long baseTime = Math.round(Double.parseDouble(tc[0]) * 1000);
+        long increment = tc.length > 1 ? Math.round(Double.parseDouble(tc[1]) * 1000) : 0;
+        Sprt sprt = null;
+        if (flags.containsKey("-sprt")) {
+            Map<String, String> parameters = keyValues(flags.get("-sprt"));
+            sprt = new Sprt(Double.parseDouble(parameters.getOrDefault("elo0", "0")),
+                    Double.parseDouble(parameters.getOrDefault("elo1", "5")),
+                    Double.parseDouble(parameters.getOrDefault("alpha", "0.05")),
+                    Double.parseDouble(parameters.getOrDefault("beta", "0.05")));
+        }
+        Path out = Path.of(first(flags, "-out", "results.csv"));
+        boolean ndjson = out.getFileName().toString().endsWith(".ndjson");
+
+        try (BufferedWriter output = Files.newBufferedWriter(out)) {
+            if (!ndjson) {
+                output.write("game,white,black,result,reason,plies,opening,millis");
+                output.newLine();
+            }
+            MatchRunner match = new MatchRunner(engines, openings, games, baseTime, increment, sprt, output, ndjson);
+            System.out.printf("%s vs %s, %d games at %s, %d at a time, %d openings%s%n", engines.get(0).name(),
+                    engines.get(1).name(), games, first(flags, "-tc", "10+0.1"), concurrency, openings.size(),
+                    sprt == null ? "" : ", " + sprt);
+            match.run(concurrency);
+        }
+    }
+
+    private static EngineConfig engine(List<String> values) {
+        Map<String, String> settings = keyValues(values);
+        Map<String, String> options = new LinkedHashMap<>();
+        settings.forEach((key, value) -> {
+            if (key.startsWith("option.")) {
+                options.put(key.substring("option.".length()), value);
+            }
+        });
+        String command = settings.get("cmd");
+        if (command == null || command.isBlank()) {
+            throw new IllegalArgumentException("-engine needs cmd=COMMAND");
+        }
+        return new EngineConfig(settings.getOrDefault("name", command), List.of(command.trim().split("\\s+")), options);
+    }
+
+    private static Map<String, String> keyValues(List<String> values) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (String value : values) {
+            int equals = value.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + value);
+            }
+            map.put(value.substring(0, equals), value.substring(equals + 1));
+        }
+        return map;
+    }
+
+    private static String first(Map<String, List<String>> flags, String flag, String fallback) {
+        List<String> values = flags.get(flag);
+        return values == null || values.isEmpty() ? fallback : values.get(0);
+    }
+
+    /**
+     * Reads the positions of an EPD file as FENs. EPD has the first four FEN fields followed by
+     * operations, which are dropped; the move counters start at 0 and 1. Blank lines and lines
+     * starting with # are skipped.
+     */
+    static List<String> readOpenings(Path file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 4 || fields[0].startsWith("#")) {
+                continue;
+            }
+            String fen = String.join(" ", Arrays.copyOf(fields, 4)) + " 0 1";
+            Position.fromFen(fen);
+            openings.add(fen);
+        }
+        if (openings.isEmpty()) {
+            openings.add(START_FEN);
+        }
+        return openings;
+    }
+
+    private void run(int concurrency) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(concurrency, 1));
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(this::work);
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        summary();
+    }
+
+    /**
+     * Plays games until the match is over, restarting an engine that crashed or hung.
+     */
+    private void work() {
+        UciEngineProcess[] pair = new UciEngineProcess[2];
+        try {
+            int game;
+            while (!finished.get() && (game = nextGame.getAndIncrement()) < games) {
+                for (int i = 0; i < 2; i++) {
+                    if (pair[i] == null || !pair[i].isAlive()) {
+                        if (pair[i] != null) {
+                            pair[i].close();
+                        }
+                        EngineConfig config = engines.get(i);
+                        pair[i] = new UciEngineProcess(config.name(), config.command(), config.options());
+                    }
+                    pair[i].newGame();
+                }
+                // Each opening is played twice in a row, the first engine white in even games
+                String opening = openings.get(game / 2 % openings.size());
+                boolean swapped = game % 2 == 1;
+                GameRecord record = play(game + 1, opening, swapped ? pair[1] : pair[0], swapped ? pair[0] : pair[1]);
+                finish(record, swapped);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not start the engines: " + e.getMessage());
+            finished.set(true);
+        } finally {
+            for (UciEngineProcess engine : pair) {
+                if (engine != null) {
+                    engine.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays one game from the opening and returns its outcome.
+     */
+    private GameRecord play(int game, String opening, UciEngineProcess white, UciEngineProcess black) {
+        long start = System.currentTimeMillis();
+        Position position = Position.fromFen(opening);
+        StringBuilder command = new StringBuilder("position fen ").append(opening).append(" moves");
+        Map<Long, Integer> seen = new HashMap<>();
+        seen.put(position.key(), 1);
+        long[] clocks = {baseTime, baseTime};
+        MoveList legal = new MoveList();
+        int plies = 0;
+        String result;
+        String reason;
+        while (true) {
+            legal.clear();
+            MoveGenerator.generateLegal(position, legal);
+            int side = position.sideToMove();
+            String sideWins = side == Position.WHITE ? "0-1" : "1-0";
+            if (legal.isEmpty()) {
+                boolean mate = position.checkers(side) != 0;
+                result = mate ? sideWins : "1/2-1/2";
+                reason = mate ? "checkmate" : "stalemate";
+                break;
+            }
+            if (position.halfmoves() >= 100) {
+                result = "1/2-1/2";
+                reason = "fifty moves";
+                break;
+            }
+            if (seen.get(position.key()) >= 3) {
+                result = "1/2-1/2";
+                reason = "repetition";
+                break;
+            }
+            if (insufficientMaterial(position)) {
+                result = "1/2-1/2";
+                reason = "insufficient material";
+                break;
+            }
+            UciEngineProcess engine = side == Position.WHITE ? white : black;
+            long moveStart = System.currentTimeMillis();
+            String text;
+            try {
+                text = engine.go(command.toString(), clocks[Position.WHITE], clocks[Position.BLACK], increment,
+                        increment, clocks[side] + TIMEOUT_GRACE_MS);
+            } catch (IOException e) {
+                result = sideWins;
+                reason = engine.name() + " crashed or hung";
+                break;
+            }
+            clocks[side] -= System.currentTimeMillis() - moveStart;
+            if (clocks[side] < 0) {
+                result = sideWins;
+                reason = engine.name() + " lost on time";
+                break;
+            }
+            clocks[side] += increment;
+            int move = find(legal, text);
+            if (move == Move.NONE) {
+                result = sideWins;
+                reason = engine.name() + " played illegal move " + text;
+                break;
+            }
+            position.makeMove(move);
+            command.append(' ').append(text);
+            seen.merge(position.key(), 1, Integer::sum);
+            plies++;
+        }
+        return new GameRecord(game, white.name(), black.name(), result, reason, plies, opening,
+                System.currentTimeMillis() - start);
+    }
+
+    private static int find(MoveList moves, String text) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(text)) {
+                return moves.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Bare kings, or a king and a single knight or bishop against a bare king.
+     */
+    private static boolean insufficientMaterial(Position position) {
+        int pieces = Long.bitCount(position.occupied());
+        if (pieces == 2) {
+            return true;
+        }
+        if (pieces != 3) {
+            return false;
+        }
+        long minors = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            minors |= position.pieces(color, Position.KNIGHT) | position.pieces(color, Position.BISHOP);
+        }
+        return minors != 0;
+    }
+
+    /**
+     * Counts the game for the first engine, writes it out, prints the standing and ends the
+     * match if the SPRT has decided.
+     */
+    private synchronized void finish(GameRecord record, boolean swapped) {
+        if (record.result().equals("1/2-1/2")) {
+            draws++;
+        } else if (record.result().equals("1-0") != swapped) {
+            wins++;
+        } else {
+            losses++;
+        }
+        try {
+            output.write(ndjson ? toJson(record) : toCsv(record));
+            output.newLine();
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.printf("Game %d: %s - %s %s (%s)  %s%n", record.game(), record.white(), record.black(),
+                record.result(), record.reason(), standing());
+        if (sprt != null && sprt.decision(wins, draws, losses) != 0) {
+            finished.set(true);
+        }
+    }
+
+    private String standing() {
+        StringBuilder standing = new StringBuilder()
+                .append(String.format("+%d -%d =%d", wins, losses, draws));
+        double[] elo = Sprt.elo(wins, draws, losses);
+        if (!Double.isNaN(elo[0])) {
+            standing.append(String.format("  Elo %.1f", elo[0]));
+            if (!Double.isNaN(elo[1])) {
+                standing.append(String.format(" +/- %.1f", elo[1]));
+            }
+        }
+        if (sprt != null) {
+            standing.append(String.format("  LLR %.2f [%.2f, %.2f]", sprt.llr(wins, draws, losses),
+                    sprt.lowerBound(), sprt.upperBound()));
+        }
+        return standing.toString();
+    }
+
+    private synchronized void summary() {
+        String verdict = "";
+        if (sprt != null) {
+            int decision = sprt.decision(wins, draws, losses);
+            verdict = decision > 0 ? "  H1 accepted" : decision < 0 ? "  H0 accepted" : "  inconclusive";
+        }
+        System.out.printf("%s vs %s: %d games  %s%s%n", engines.get(0).name(), engines.get(1).name(),
+                wins + draws + losses, standing(), verdict);
+    }
+
+    private static String toCsv(GameRecord record) {
+        return String.join(",", String.valueOf(record.game()), csv(record.white()), csv(record.black()),
+                record.result(), csv(record.reason()), String.valueOf(record.plies()), csv(record.opening()),
+                String.valueOf(record.millis()));
+    }
+
+    private static String csv(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static String toJson(GameRecord record) {
+        return "{\"game\":" + record.game()
+                + ",\"white\":" + json(record.white())
+                + ",\"black\":" + json(record.black())
+                + ",\"result\":" + json(record.result())
+                + ",\"reason\":" + json(record.reason())
+                + ",\"plies\":" + record.plies()
+                + ",\"opening\":" + json(record.opening())
+                + ",\"millis\":" + record.millis() + "}";
+    }
+
+    private static String json(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
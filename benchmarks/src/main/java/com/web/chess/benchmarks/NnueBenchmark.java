@@ -0,0 +1,76 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.engine.Network;
+import com.web.chess.engine.NnueEvaluator;
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NNUE evaluation on the Vector API against the plain Java kernels, with a random network of the
+ * given hidden size. evaluate() runs the dense layers only; moves() plays each legal move of the
+ * kiwipete position, updating the accumulators, evaluates and takes it back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class NnueBenchmark {
+
+    @Param({"vector", "scalar"})
+    public String kernels;
+
+    @Param({"256"})
+    public int hiddenSize;
+
+    private Position position;
+    private NnueEvaluator evaluator;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        Network network = Network.random(hiddenSize, 1);
+        if (kernels.equals("scalar")) {
+            network = network.scalar();
+        } else if (!network.vectorized()) {
+            throw new IllegalStateException("The Vector API is not available");
+        }
+        position = Position.fromFen(Perft.REFERENCES.get(1).fen());
+        evaluator = new NnueEvaluator(network);
+        evaluator.reset(position);
+        MoveGenerator.generateLegal(position, moves);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(position);
+    }
+
+    @Benchmark
+    public int moves() {
+        int total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            evaluator.makeMove(position, moves.get(i));
+            position.makeMove(moves.get(i));
+            total += evaluator.evaluate(position);
+            position.unmakeMove();
+            evaluator.unmakeMove();
+        }
+        return total;
+    }
+}
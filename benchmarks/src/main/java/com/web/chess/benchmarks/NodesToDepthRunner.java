@@ -0,0 +1,45 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.Search;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+
+/**
+ * Measures move ordering: searches each perft reference position to every depth up to the
+ * maximum, each run on a fresh search and transposition table, and prints the nodes and time to
+ * reach the depth and the effective branching factor (nodes to this depth over nodes to the one
+ * before). Better ordering means fewer nodes to the same depth, so compare runs of this on the
+ * same depth before and after an ordering change.
+ *
+ * Usage: NodesToDepthRunner [depth] [hashMb] (default 9, 64)
+ */
+public class NodesToDepthRunner {
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int hashMegabytes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long totalNodes = 0;
+        long totalMillis = 0;
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Position position = Position.fromFen(reference.fen());
+            long previous = 0;
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                Search search = new Search(new TranspositionTable(hashMegabytes));
+                long start = System.nanoTime();
+                SearchResult result = search.search(position, SearchLimits.depth(depth));
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("%-10s depth %2d  %,14d nodes  %,8d ms  ebf %5.2f%n", reference.name(), depth,
+                        result.nodes(), elapsed, previous == 0 ? 0 : (double) result.nodes() / previous);
+                previous = result.nodes();
+                if (depth == maxDepth) {
+                    totalNodes += result.nodes();
+                    totalMillis += elapsed;
+                }
+            }
+        }
+        System.out.printf("Total to depth %d: %,d nodes in %,d ms%n", maxDepth, totalNodes, totalMillis);
+    }
+}
@@ -0,0 +1,51 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Perft throughput of the engine's move generator. Divide the node count by the score to get
+ * nodes per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerftBenchmark {
+
+    @Param({"start", "kiwipete", "position3"})
+    public String name;
+
+    @Param({"3"})
+    public int depth;
+
+    private Position position;
+
+    @Setup
+    public void setup() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            if (reference.name().equals(name)) {
+                position = Position.fromFen(reference.fen());
+            }
+        }
+    }
+
+    @Benchmark
+    public long perft() {
+        return Perft.perft(position, depth);
+    }
+}
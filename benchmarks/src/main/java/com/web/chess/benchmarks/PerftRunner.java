@@ -0,0 +1,74 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the perft reference suite and compares each count with the published value. Prints nodes
+ * per second for every position and depth, and exits with status 1 on any mismatch so it can be
+ * used as a gate before shipping engine changes. With more than one thread the counts are run on
+ * a ForkJoinPool of that size.
+ *
+ * Usage: PerftRunner [maxDepth] [threads] (default 5, 1)
+ *        PerftRunner divide depth threads fen
+ */
+public class PerftRunner {
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("divide")) {
+            divide(args);
+            return;
+        }
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        boolean failed = false;
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Position position = Position.fromFen(reference.fen());
+            for (int depth = 1; depth <= Math.min(maxDepth, reference.nodes().length); depth++) {
+                long start = System.nanoTime();
+                long nodes = pool == null ? Perft.perft(position, depth) : Perft.perft(position, depth, pool);
+                long elapsed = Math.max(System.nanoTime() - start, 1);
+                long expected = reference.nodes()[depth - 1];
+                boolean ok = nodes == expected;
+                failed |= !ok;
+                System.out.printf("%-10s depth %d  %,14d nodes  %,12d nodes/s  %s%n", reference.name(),
+                        depth, nodes, nodes * 1_000_000_000L / elapsed,
+                        ok ? "OK" : "FAIL (expected " + expected + ")");
+            }
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the node count below each root move and the total, for comparing against another
+     * engine's divide output.
+     */
+    private static void divide(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: PerftRunner divide depth threads fen");
+            System.exit(2);
+        }
+        int depth = Integer.parseInt(args[1]);
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[2]));
+        String fen = String.join(" ", Arrays.copyOfRange(args, 3, args.length));
+        Map<String, Long> counts = Perft.divide(Position.fromFen(fen), depth, pool);
+        long total = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Moves: " + counts.size());
+        System.out.println("Nodes: " + total);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package com.web.chess.benchmarks;
+
+import com.web.chess.engine.ParallelSearch;
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures Lazy SMP time-to-depth: searches each perft reference position to a fixed depth with
+ * 1, 2, 4, ... threads up to the maximum, each run on a fresh transposition table, and prints
+ * the time, nodes and the speedup over one thread. Lazy SMP spends extra nodes on the helpers,
+ * so time-to-depth is the number to compare, not nodes per second.
+ *
+ * Usage: SmpRunner [depth] [maxThreads] [hashMb] (default 8, cores, 64)
+ */
+public class SmpRunner {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int hashMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        ExecutorService executor = Executors.newCachedThreadPool();
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Position position = Position.fromFen(reference.fen());
+            long baseline = 0;
+            for (int count = 1; count < 2 * maxThreads; count *= 2) {
+                int threads = Math.min(count, maxThreads);
+                ParallelSearch search = new ParallelSearch(new TranspositionTable(hashMegabytes), threads);
+                long start = System.nanoTime();
+                SearchResult result = search.search(position, SearchLimits.depth(depth), executor);
+                long elapsed = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+                if (threads == 1) {
+                    baseline = elapsed;
+                }
+                System.out.printf("%-10s depth %d  %2d threads  %,8d ms  %,14d nodes  speedup %.2f%n",
+                        reference.name(), result.depth(), threads, elapsed, result.nodes(),
+                        (double) baseline / elapsed);
+            }
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package com.web.chess.benchmarks;
+
+/**
+ * Sequential probability ratio test between two Elo hypotheses, elo0 (usually "no gain") and
+ * elo1 (the gain we hope for), with false positive rate alpha and false negative rate beta. After
+ * every game the log-likelihood ratio is compared with the two bounds: above the upper one elo1 is
+ * accepted, below the lower one elo0 is, and in between the match goes on.
+ *
+ * The ratio uses the normal approximation of the generalized SPRT on the game results (win, draw
+ * or loss): LLR = N (s1 - s0) (2 s - s0 - s1) / (2 var), with s the mean score, var its per-game
+ * variance, and s0 and s1 the scores the two hypotheses predict.
+ */
+final class Sprt {
+
+    private final double elo0;
+    private final double elo1;
+    private final double alpha;
+    private final double beta;
+
+    Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("SPRT needs elo0 < elo1 and alpha, beta in (0, 1)");
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    double lowerBound() {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    double upperBound() {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Returns the log-likelihood ratio of elo1 against elo0 for the results so far, from the
+     * first engine's point of view.
+     */
+    double llr(int wins, int draws, int losses) {
+        int games = wins + draws + losses;
+        if (games == 0) {
+            return 0;
+        }
+        double score = (wins + draws / 2.0) / games;
+        double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / games;
+        if (variance == 0) {
+            // All results the same: no information about the spread yet
+            return 0;
+        }
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+    }
+
+    /**
+     * Returns 1 if elo1 is accepted, -1 if elo0 is, and 0 if the test goes on.
+     */
+    int decision(int wins, int draws, int losses) {
+        double llr = llr(wins, draws, losses);
+        return llr >= upperBound() ? 1 : llr <= lowerBound() ? -1 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SPRT elo0 %.1f elo1 %.1f alpha %.2f beta %.2f", elo0, elo1, alpha, beta);
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Returns the Elo difference that gives the score and its 95% margin. Either is NaN while the
+     * score, or one end of its interval, is 0 or 1.
+     */
+    static double[] elo(int wins, int draws, int losses) {
+        int games = wins + draws + losses;
+        double score = (wins + draws / 2.0) / games;
+        double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        double low = eloOf(score - margin);
+        double high = eloOf(score + margin);
+        return new double[]{eloOf(score), (high - low) / 2};
+    }
+
+    private static double eloOf(double score) {
+        return score <= 0 || score >= 1 ? Double.NaN : -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+}
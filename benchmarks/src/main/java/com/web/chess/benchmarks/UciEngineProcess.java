@@ -0,0 +1,115 @@
+package com.web.chess.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A UCI engine running as a child process, for MatchRunner. The engine's stderr is discarded.
+ * A call that gets no answer in time kills the process, and the call then fails like an engine
+ * that crashed; start a new one for the next game.
+ */
+final class UciEngineProcess implements AutoCloseable {
+
+    /**
+     * How long the handshake and isready may take.
+     */
+    private static final long READY_TIMEOUT_MS = 30_000;
+
+    private final String name;
+    private final Process process;
+    private final BufferedReader in;
+    private final PrintWriter out;
+
+    UciEngineProcess(String name, List<String> command, Map<String, String> options) throws IOException {
+        this.name = name;
+        this.process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        this.in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new PrintWriter(process.getOutputStream(), true, StandardCharsets.UTF_8);
+        send("uci");
+        await("uciok", READY_TIMEOUT_MS);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            send("setoption name " + option.getKey() + " value " + option.getValue());
+        }
+        isReady();
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void newGame() throws IOException {
+        send("ucinewgame");
+        isReady();
+    }
+
+    private void isReady() throws IOException {
+        send("isready");
+        await("readyok", READY_TIMEOUT_MS);
+    }
+
+    /**
+     * Sends the position and clocks and returns the engine's move, in UCI notation.
+     *
+     * @throws IOException if the engine exits, or does not answer within timeoutMs
+     */
+    String go(String position, long whiteTime, long blackTime, long whiteIncrement, long blackIncrement,
+              long timeoutMs) throws IOException {
+        send(position);
+        send("go wtime " + whiteTime + " btime " + blackTime + " winc " + whiteIncrement + " binc " + blackIncrement);
+        String line = await("bestmove", timeoutMs);
+        String[] tokens = line.split("\\s+");
+        if (tokens.length < 2) {
+            throw new IOException(name + " sent no move: " + line);
+        }
+        return tokens[1];
+    }
+
+    private void send(String command) {
+        out.println(command);
+    }
+
+    /**
+     * Reads until a line starting with the given word and returns it.
+     */
+    private String await(String word, long timeoutMs) throws IOException {
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(process::destroyForcibly,
+                CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals(word) || line.startsWith(word + " ")) {
+                    return line;
+                }
+            }
+            throw new IOException(name + " exited or timed out waiting for " + word);
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (process.isAlive()) {
+            send("quit");
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.web.chess;
+
+import com.web.chess.services.AnalysisStreamService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits how often each subscriber of /topic/analysis/{id} receives analysis updates. Every
+ * update holds the complete lines, so skipping one loses nothing a later one does not bring;
+ * the last update of a position is always delivered.
+ *
+ * A subscriber may ask for a longer interval with a throttle-ms header on its SUBSCRIBE frame.
+ * Shorter intervals than chess.stream.min-interval-ms are raised to it. Registered on both the
+ * inbound channel, to see subscriptions, and the outbound channel, to drop updates.
+ */
+@Component
+public class AnalysisThrottle implements ChannelInterceptor {
+
+    public static final String INTERVAL_HEADER = "throttle-ms";
+
+    private final long minInterval;
+
+    /**
+     * Interval and last delivery time of each subscription, keyed by session and subscription id.
+     */
+    private final Map<String, long[]> subscriptions = new ConcurrentHashMap<>();
+
+    public AnalysisThrottle(@Value("${chess.stream.min-interval-ms:500}") long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        SimpMessageType type = accessor.getMessageType();
+        String key = accessor.getSessionId() + "/" + accessor.getSubscriptionId();
+        if (type == SimpMessageType.SUBSCRIBE && isAnalysis(accessor)) {
+            subscriptions.put(key, new long[]{intervalOf(accessor.getFirstNativeHeader(INTERVAL_HEADER)), 0});
+        } else if (type == SimpMessageType.UNSUBSCRIBE) {
+            subscriptions.remove(key);
+        } else if (type == SimpMessageType.DISCONNECT) {
+            subscriptions.keySet().removeIf(subscription -> subscription.startsWith(accessor.getSessionId() + "/"));
+        } else if (type == SimpMessageType.MESSAGE && isAnalysis(accessor)) {
+            return allow(key, accessor.getFirstNativeHeader(AnalysisStreamService.DONE_HEADER) != null)
+                    ? message : null;
+        }
+        return message;
+    }
+
+    private boolean allow(String key, boolean done) {
+        long[] subscription = subscriptions.computeIfAbsent(key, k -> new long[]{minInterval, 0});
+        long now = System.currentTimeMillis();
+        synchronized (subscription) {
+            if (!done && now - subscription[1] < subscription[0]) {
+                return false;
+            }
+            subscription[1] = now;
+            return true;
+        }
+    }
+
+    private long intervalOf(String header) {
+        try {
+            return header == null ? minInterval : Math.max(Long.parseLong(header.trim()), minInterval);
+        } catch (NumberFormatException e) {
+            return minInterval;
+        }
+    }
+
+    private static boolean isAnalysis(SimpMessageHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        return destination != null && destination.startsWith(AnalysisStreamService.TOPIC_PREFIX);
+    }
+}
@@ -1,10 +1,20 @@
 package com.web.chess;
+import com.web.chess.engine.Bitboards;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.Position;
+import com.web.chess.models.GameMode;
 import com.web.chess.models.Player;
-import java.awt.*;
-import java.util.HashSet;
 
 
 
+/**
+ * The state of one game as the web client sees it. This is headless: the pieces live in the
+ * Board's Position as compact codes and the highlighted squares are a bitmask, so no Swing or AWT
+ * classes are needed.
+ *
+ * Moves can come from HTTP requests and from engine threads, so the methods that read or change
+ * the game are synchronized on the game.
+ */
 public class ChessBoardGUI {
 
     /**
@@ -18,9 +28,10 @@ public class ChessBoardGUI {
     private Player player2;
 
     /**
-     * chessBoardSquares is a 2D array representing all the squares of the chessboard.
+     * The highlighted squares, one bit per square (row * 8 + column): the selected piece and the
+     * squares it can move to.
      */
-     public Piece[][] chessBoardSquares = new Piece[8][8];
+    private long highlights;
 
 
     /**
@@ -35,7 +46,8 @@ public class ChessBoardGUI {
         BLACK,
         BLACK_SELECT,
         CHECKMATE,
-        STALEMATE
+        STALEMATE,
+        DRAW
     }
 
     /**
@@ -50,9 +62,9 @@ public class ChessBoardGUI {
     private int[] lastclick = new int[2];
 
     /**
-     * Represents the current set of legalMoves for the selected piece.
+     * The color the engine plays (-1 white, 1 black), or 0 when both sides are human.
      */
-    private HashSet<String> currentLegalMoves = new HashSet<>();
+    private final int engineColor;
 
     /**
      * Sets player2.
@@ -61,84 +73,117 @@ public class ChessBoardGUI {
         player2 = player;
     }
     /**
-     * Constructor for ChessBoardGUI. Makes use of initializeGui().
+     * Constructor for ChessBoardGUI. The board is empty until setupBoard() is called.
      */
     public ChessBoardGUI(Player player) {
+        this(player, GameMode.HUMAN);
+    }
+
+    /**
+     * Constructor for a game in the given mode. Against the engine, the engine takes the color
+     * player 1 did not choose, so it plays black unless player 1 asked for black.
+     */
+    public ChessBoardGUI(Player player, GameMode mode) {
         player1 = player;
-        initializeGui();
+        if (mode == GameMode.ENGINE) {
+            engineColor = player.color == 1 ? -1 : 1;
+        } else {
+            engineColor = 0;
+        }
     }
 
-    private void initializeGui() {
-        // create the chess board squares
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                chessBoardSquares[row][col] = new Piece("Empty", false);
-            }
+    /**
+     * Returns whether the engine plays one side of this game.
+     */
+    public boolean hasEngine() {
+        return engineColor != 0;
+    }
+
+    /**
+     * Returns whether the game is waiting for the engine to move.
+     */
+    public synchronized boolean isEngineTurn() {
+        return (engineColor == -1 && currentGamestate == gamestate.WHITE)
+                || (engineColor == 1 && currentGamestate == gamestate.BLACK);
+    }
+
+    /**
+     * Returns a copy of the current position that the caller may search or modify freely, or
+     * null before a position is set up.
+     */
+    public synchronized Position positionCopy() {
+        return board == null ? null : board.positionCopy();
+    }
+
+    /**
+     * Plays the engine's move, provided it is still the engine's turn in the position with the
+     * given key. Returns false if the game moved on while the engine was thinking (e.g. a new
+     * FEN was loaded).
+     */
+    public synchronized boolean playEngineMove(int move, long positionKey) {
+        if (!isEngineTurn() || board.positionKey() != positionKey) {
+            return false;
         }
+        currentGamestate = engineColor == -1 ? gamestate.WHITE_SELECT : gamestate.BLACK_SELECT;
+        finishMove(move);
+        return true;
+    }
+
+    /**
+     * Returns the piece code at the given square (see Piece), or Position.EMPTY before a position
+     * is set up.
+     */
+    public synchronized int pieceAt(int row, int column) {
+        return board == null ? Position.EMPTY : board.pieceAt(row, column);
+    }
+
+    /**
+     * Returns whether the given square is highlighted.
+     */
+    public synchronized boolean isHighlighted(int row, int column) {
+        return (highlights & (1L << Bitboards.square(row, column))) != 0;
     }
 
     /**
      * Setup board with pieces given a starting position (FEN).
      * I.e: "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     *
+     * An invalid FEN leaves the game as it was.
+     *
+     * @throws com.web.chess.engine.FenException if the FEN is invalid
      */
-    public Piece[][] setupBoard(String userInput) {
+    public synchronized void setupBoard(String userInput) {
+        // Parse first, so a bad FEN does not end the current game
+        Board next = new Board(userInput);
         if (currentGamestate != gamestate.INACTIVE) {
             currentGamestate = gamestate.INACTIVE;
             uncolor();
         }
-        // Initialize the board with the given FEN
-        String[] fields = userInput.split(" ");
-        board = new Board(fields);
-        String[] ranks = fields[0].split("/");
-        // First Field: pieces and their positions "3R"
-        for (int row = 0; row < 8; row++) {
-            int column = 0;
-            for (int j = 0; j < ranks[row].length(); j++ ) { //j = current index along rank entry
-                try {
-                    int empties = Integer.parseInt(ranks[row].substring(j,j+1));
-                    for (int k = 0; k < empties; k++) {
-                        Piece piece = new Piece("Empty", false);
-                        chessBoardSquares[row][column].reinitialize(piece);
-                        column++;
-                    }
-                } catch (NumberFormatException e) {
-                    // Enforce hasMoved for pawns
-                    Piece piece;
-                    String pieceType = ranks[row].substring(j,j+1);
-                    if (pieceType.equals("p") && row == 1) {
-                        piece = new Piece(pieceType, false);
-                    } else if (pieceType.equals("P") && row == 6) {
-                        piece = new Piece(pieceType, false);
-                    } else if (pieceType.equals("P") || pieceType.equals("p")) {
-                        piece = new Piece(pieceType, true);
-                    } else {
-                        piece = new Piece(pieceType, false);
-                    }
-                    chessBoardSquares[row][column].reinitialize(piece);
-                    column++;
-                }
-            } // I don't know if this is needed for valid FENs, but it is convenient
-            if (column != 7) {
-                while (column <= 7) {
-                    Piece piece = new Piece("Empty", false);
-                    chessBoardSquares[row][column].reinitialize(piece);
-                    column++;
-                }
-            }
-        }
-        return chessBoardSquares;
+        board = next;
+    }
+
+    /**
+     * Returns the FEN of the game's current position, or null before a position is set up.
+     */
+    public synchronized String toFen() {
+        return board == null ? null : board.toFen();
+    }
+
+    /**
+     * Returns the Zobrist key of the game's current position, or 0 before a position is set up.
+     * The key is computed in setupBoard and updated with every move.
+     */
+    public synchronized long positionKey() {
+        return board == null ? 0 : board.positionKey();
     }
 
     /**
      * Starts the game, initializing the gamestate to the correct turn
      */
-    public void startGame() {
+    public synchronized void startGame() {
         if (board == null) {
             return;
         }
-        // Check if any checks or pins exist
-        board.updateXray(chessBoardSquares);
-
         if (board.getTurn().equals("w")) {
             currentGamestate = gamestate.WHITE;
         } else {
@@ -155,27 +200,23 @@ public class ChessBoardGUI {
     /**
      * Handles the movement of the pieces on the GUI. Ensures that moves are legal.
      */
-    public void buttonPress(int row, int column, int color) {
-        if (!colorTurnMatch(currentGamestate, color)) {
+    public synchronized void buttonPress(int row, int column, int color) {
+        if (color == engineColor || !colorTurnMatch(currentGamestate, color)) {
             return;
         }
 
         switch (currentGamestate) {
             case WHITE,BLACK:
-                if (currentGamestate == gamestate.WHITE && chessBoardSquares[row][column].getColor() == -1) {
+                int pieceColor = Piece.color(board.pieceAt(row, column));
+                if (currentGamestate == gamestate.WHITE && pieceColor == -1) {
                     currentGamestate = gamestate.WHITE_SELECT;
-                } else if (currentGamestate == gamestate.BLACK && chessBoardSquares[row][column].getColor() == 1) {
+                } else if (currentGamestate == gamestate.BLACK && pieceColor == 1) {
                     currentGamestate = gamestate.BLACK_SELECT;
                 } else {
                     break;
                 }
-                currentLegalMoves = board.legalMoves(row, column, chessBoardSquares);
                 // Color current piece and legalMoves
-                chessBoardSquares[row][column].setBackground(Color.green);
-                for (String position : currentLegalMoves) {
-                    int[] coords = board.coordOfPosition(position);
-                    chessBoardSquares[coords[0]][coords[1]].setBackground(Color.green);
-                }
+                highlights = (1L << Bitboards.square(row, column)) | board.clickSquares(row, column);
                 break;
             case WHITE_SELECT, BLACK_SELECT:
                 // Allow user to deselect the piece they chose
@@ -194,25 +235,9 @@ public class ChessBoardGUI {
                 // otherwise set gamestate back to WHITE or BLACK.
                 // 3. Check for promotion, then check for checks on the opposing King
                 // 4. If there is a check, should automatically check for checkmate as well.
-                if (currentLegalMoves.contains(board.positionOfCoord(row, column))) {
-                    // Uncolor selection first so background can be used in makeMove()
-                    uncolor();
-                    // MAKE MOVE (make a helper function)
-                    makeMove(row, column);
-                    // Uncolor Selection and Check for Checks and update XRAY status
-                    boardUpdate();
-                    if (currentGamestate == gamestate.CHECKMATE) {
-                        // END GAME
-                    } else if (currentGamestate == gamestate.STALEMATE) {
-                        // END GAME
-                    }
-                    // Switch turn
-                    else if (currentGamestate == gamestate.WHITE_SELECT) {
-                        currentGamestate = gamestate.BLACK;
-                    } else {
-                        currentGamestate = gamestate.WHITE;
-
-                    }
+                int move = board.findMove(lastclick[0], lastclick[1], row, column);
+                if (move != Move.NONE) {
+                    finishMove(move);
                 } else { // Illegal move selected, deselect piece
                     if (currentGamestate == gamestate.WHITE_SELECT) {
                         currentGamestate = gamestate.WHITE;
@@ -231,159 +256,80 @@ public class ChessBoardGUI {
     }
 
     /**
-     * Handles the execution of making a move on the board. Makes sure to update all necessary
-     * fields. related to the backing data and the display on the GUI.
+     * Plays a legal move for the side whose piece is selected, then checks for the end of the
+     * game and passes the turn.
      */
-    private void makeMove(int destRow, int destCol) {
-        // Empty current passant moves
-        board.emptyPassant();
-        Piece empty = new Piece("Empty",false);
-        Piece origin = chessBoardSquares[lastclick[0]][lastclick[1]];
-        Piece target = chessBoardSquares[destRow][destCol];
-
-        if(target.getColor() != 0) {
-            // TODO: Do something regarding captures?
-            //  E.g. listing the captured pieces on the gui somewhere?
+    private void finishMove(int move) {
+        uncolor();
+        makeMove(move);
+        // Uncolor Selection and Check for Checks and update XRAY status
+        boardUpdate();
+        if (currentGamestate == gamestate.CHECKMATE) {
+            // END GAME
+        } else if (currentGamestate == gamestate.STALEMATE) {
+            // END GAME
+        } else if (currentGamestate == gamestate.DRAW) {
+            // END GAME
         }
-        if(origin.getType().equalsIgnoreCase("P")) {
-            // Special things need to be done for pawns:
-            // Promotion:
-            if (currentGamestate == gamestate.WHITE_SELECT && destRow == 0) {
-                origin.reinitialize(new Piece("Q", true));
-            } else if (currentGamestate == gamestate.BLACK_SELECT && destRow == 7) {
-                origin.reinitialize(new Piece("q", true));
-            }
-            // En Passant:
-            // 1. Update things when pawns move 2 spaces.
-            // 2. Capture the piece that should be captured
-            if (Math.abs(destRow - lastclick[0]) > 1) {
-                if(currentGamestate == gamestate.BLACK_SELECT) {
-                    board.addPassant(board.positionOfCoord(destRow-1, destCol));
-                } else {
-                    board.addPassant(board.positionOfCoord(destRow+1, destCol));
-                }
-            }
-            if (destCol != lastclick[1] && target.getType().equals("Empty")) {
-                Piece passantTarget;
-                if(currentGamestate == gamestate.BLACK_SELECT) {
-                    passantTarget = chessBoardSquares[destRow-1][destCol];
-                } else {
-                    passantTarget = chessBoardSquares[destRow+1][destCol];
-                }
-                passantTarget.reinitialize(empty);
-            }
-            target.reinitialize(origin); // Is this all I need to do?
-            target.setMoved(true);
-            // This maintains the background because I am just setting the background
-            // to what it already is
-            origin.reinitialize(empty);
-            return;
-        }
-        if(origin.getType().equalsIgnoreCase("K")) {
-            // Special things to consider for kings:
-            // Castling
-            if (destCol - lastclick[1] > 1) {
-                // Kingside castle
-                Piece kingTarget = chessBoardSquares[destRow][destCol-1];
-                Piece rookTarget = chessBoardSquares[lastclick[0]][lastclick[1]+1];
-                rookTarget.reinitialize(target);
-                rookTarget.setMoved(true);
-                kingTarget.reinitialize(origin);
-                kingTarget.setMoved(true);
-                target.reinitialize(empty);
-                origin.reinitialize(empty);
-                if(rookTarget.getColor() == -1) {
-                    board.removeCastle("K");
-                } else {
-                    board.removeCastle("k");
-                }
-                return;
-            } else if (destCol - lastclick[1] < -1) {
-                // Queenside castle
-                Piece kingTarget = chessBoardSquares[destRow][destCol+2];
-                Piece rookTarget = chessBoardSquares[lastclick[0]][lastclick[1]-1];
-                rookTarget.reinitialize(target);
-                rookTarget.setMoved(true);
-                kingTarget.reinitialize(origin);
-                kingTarget.setMoved(true);
-                target.reinitialize(empty);
-                origin.reinitialize(empty);
-                // You can't castle twice
-                if(rookTarget.getColor() == -1) {
-                    board.removeCastle("Q");
-                    board.removeCastle("K");
-                } else {
-                    board.removeCastle("q");
-                    board.removeCastle("k");
-                }
-                return;
-            }
-            // Once the king moves he cannot castle
-            if(origin.getColor() == -1) {
-                board.removeCastle("Q");
-                board.removeCastle("K");
-            } else {
-                board.removeCastle("q");
-                board.removeCastle("k");
-            }
-            target.reinitialize(origin);
-            target.setMoved(true);
-            origin.reinitialize(empty);
-            return;
+        // Switch turn
+        else if (currentGamestate == gamestate.WHITE_SELECT) {
+            currentGamestate = gamestate.BLACK;
+        } else {
+            currentGamestate = gamestate.WHITE;
+
         }
-        // All other pieces
-        target.reinitialize(origin); // Is this all I need to do?
-        target.setMoved(true);
-        origin.reinitialize(empty);
+    }
 
+    /**
+     * Handles the execution of making a move on the board. The Position behind the board is the
+     * only copy of the pieces, so castling, en passant and promotion need no extra bookkeeping.
+     */
+    private void makeMove(int move) {
+        board.makeMove(move);
     }
+
     /**
-     * Sets all the squares on the chessboard Piece's backgrounds to what they were originally.
+     * Clears all highlighted squares.
      */
     public void uncolor() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                chessBoardSquares[i][j].originalBackground();
-            }
-        }
+        highlights = 0;
     }
 
     /**
      * Does the various checks that need to be made after each move is made, such as:
-     * -Update each piece's Xray status
      * -Detect check and checkmate
+     * -Detect stalemate and dead drawn endings
      */
     public void boardUpdate() {
-        // Refresh all pieces' pin status
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                chessBoardSquares[i][j].resetPin();
-            }
-        }
         // Detect check, checkmate, and draws
         if (currentGamestate == gamestate.WHITE_SELECT) {
-            if (board.detectChecks(1, chessBoardSquares) > 0) {
-                if (board.detectCheckmate(1, chessBoardSquares)) {
+            if (board.detectChecks(1) > 0) {
+                if (board.detectCheckmate(1)) {
                     currentGamestate = gamestate.CHECKMATE;
                 }
             } else {
                 // Detect stalemate
-                if (board.detectStalemate(1, chessBoardSquares)) {
+                if (board.detectStalemate(1)) {
                     currentGamestate = gamestate.STALEMATE;
                 }
             }
         } else {
-            if (board.detectChecks(-1, chessBoardSquares) > 0) {
-                if (board.detectCheckmate(-1, chessBoardSquares)) {
+            if (board.detectChecks(-1) > 0) {
+                if (board.detectCheckmate(-1)) {
                     currentGamestate = gamestate.CHECKMATE;
                 }
             } else {
                 // Detect stalemate
-                if (board.detectStalemate(-1, chessBoardSquares)) {
+                if (board.detectStalemate(-1)) {
                     currentGamestate = gamestate.STALEMATE;
                 }
             }
         }
+        // End dead positions, which neither side can win by any sequence of moves
+        if (currentGamestate != gamestate.CHECKMATE && currentGamestate != gamestate.STALEMATE
+                && board.detectDeadDraw()) {
+            currentGamestate = gamestate.DRAW;
+        }
 
     }
 }
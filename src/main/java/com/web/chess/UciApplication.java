@@ -0,0 +1,437 @@
+package com.web.chess;
+
+import com.web.chess.engine.Bitbases;
+import com.web.chess.engine.ClassicalEvaluator;
+import com.web.chess.engine.Evaluator;
+import com.web.chess.engine.Magics;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.engine.Network;
+import com.web.chess.engine.NnueEvaluator;
+import com.web.chess.engine.ParallelSearch;
+import com.web.chess.engine.Perft;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.Search;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the engine without the web server, speaking UCI on standard input and output, so that
+ * match runners and GUIs can play it against other engines. It uses the same move generator and
+ * search as the web games, and loads nothing of Spring.
+ *
+ * To answer "uci" at once, the slider tables and bitbases are built on a background thread, and
+ * isready or the first command that needs the engine waits for them. Unless the webchess.magics and
+ * webchess.bitbases properties say otherwise, the tables are cached under the temporary
+ * directory, so only the first start pays for building them. The hash table is allocated on
+ * first use, after the GUI has had its chance to set the Hash option.
+ *
+ * Besides the standard commands, "bench [depth]" searches the perft reference positions to the
+ * given depth on a cleared table and prints the total nodes and speed. With one thread the node
+ * count only changes when the search does, so it is a quick check for unintended changes.
+ *
+ * Usage, from a build: java -cp target/classes com.web.chess.UciApplication. For an NNUE EvalFile
+ * to run on the Vector API, build with -Pvector and add --add-modules jdk.incubator.vector.
+ */
+public final class UciApplication {
+
+    static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final int DEFAULT_HASH_MB = 64;
+    private static final int MAX_HASH_MB = 65536;
+    private static final int MAX_THREADS = 512;
+    private static final int MAX_LINES = 64;
+    private static final int DEFAULT_OVERHEAD_MS = 30;
+    private static final int DEFAULT_BENCH_DEPTH = 9;
+
+    /**
+     * Moves to budget for when the GUI does not say how many are left until the next time control.
+     */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final CompletableFuture<Void> ready;
+    private final ExecutorService searchThread;
+    private final ExecutorService helpers;
+
+    private Position position;
+    private int hashMegabytes = DEFAULT_HASH_MB;
+    private int threads = 1;
+    private int lines = 1;
+    private long moveOverhead = DEFAULT_OVERHEAD_MS;
+    private Network network;
+
+    /**
+     * Rebuilt when an option they depend on changes.
+     */
+    private TranspositionTable table;
+    private ParallelSearch search;
+
+    private CompletableFuture<Void> running = CompletableFuture.completedFuture(null);
+    private CountDownLatch stopped = new CountDownLatch(0);
+
+    public UciApplication(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+        AtomicInteger counter = new AtomicInteger();
+        this.searchThread = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "uci-search"));
+        this.helpers = Executors.newCachedThreadPool(runnable -> daemon(runnable, "uci-" + counter.incrementAndGet()));
+        // Building a position builds the slider tables
+        this.ready = CompletableFuture.runAsync(() -> {
+            position = Position.fromFen(START_FEN);
+            Bitbases.load();
+        }, helpers);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path cache = Path.of(System.getProperty("java.io.tmpdir"), "webchess");
+        try {
+            Files.createDirectories(cache);
+            if (System.getProperty(Magics.FILE_PROPERTY) == null) {
+                System.setProperty(Magics.FILE_PROPERTY, cache.resolve("magics.bin").toString());
+            }
+            if (System.getProperty(Bitbases.DIRECTORY_PROPERTY) == null) {
+                System.setProperty(Bitbases.DIRECTORY_PROPERTY, cache.toString());
+            }
+        } catch (IOException | SecurityException e) {
+            // No cache, the tables are built on every start
+        }
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false);
+        new UciApplication(new BufferedReader(new InputStreamReader(System.in)), out).run();
+    }
+
+    /**
+     * Reads and answers commands until "quit" or the end of the input. At the end of the input a
+     * running search is allowed to finish, unless it is infinite.
+     */
+    public void run() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            try {
+                if (!handle(line.trim())) {
+                    stop();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                send("info string Invalid command: " + line + " (" + e + ")");
+            }
+        }
+        if (stopped.getCount() > 0) {
+            stop();
+        }
+        running.join();
+    }
+
+    /**
+     * Answers one command and returns false on "quit".
+     */
+    boolean handle(String command) {
+        String[] tokens = command.split("\\s+");
+        switch (tokens[0]) {
+            case "uci" -> {
+                send("id name webChess");
+                send("id author the webChess authors");
+                send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name MultiPV type spin default 1 min 1 max " + MAX_LINES);
+                send("option name Move Overhead type spin default " + DEFAULT_OVERHEAD_MS + " min 0 max 5000");
+                send("option name EvalFile type string default <empty>");
+                send("option name Clear Hash type button");
+                send("uciok");
+            }
+            case "isready" -> {
+                ready.join();
+                send("readyok");
+            }
+            case "setoption" -> setOption(command);
+            case "ucinewgame" -> {
+                awaitSearch();
+                if (table != null) {
+                    table.clear();
+                }
+            }
+            case "position" -> setPosition(tokens);
+            case "go" -> go(tokens);
+            case "stop" -> stop();
+            case "ponderhit", "debug", "register", "" -> {
+                // Pondering is not offered, and there is nothing to debug or register
+            }
+            case "bench" -> bench(tokens.length > 1 ? Integer.parseInt(tokens[1]) : DEFAULT_BENCH_DEPTH);
+            case "quit" -> {
+                return false;
+            }
+            default -> send("info string Unknown command: " + command);
+        }
+        return true;
+    }
+
+    private void setOption(String command) {
+        int nameAt = command.indexOf(" name ");
+        if (nameAt < 0) {
+            return;
+        }
+        int valueAt = command.indexOf(" value ");
+        String name = (valueAt < 0 ? command.substring(nameAt + 6) : command.substring(nameAt + 6, valueAt)).trim();
+        String value = valueAt < 0 ? "" : command.substring(valueAt + 7).trim();
+        awaitSearch();
+        try {
+            switch (name.toLowerCase()) {
+                case "hash" -> {
+                    hashMegabytes = clamp(Integer.parseInt(value), 1, MAX_HASH_MB);
+                    table = null;
+                    search = null;
+                }
+                case "threads" -> {
+                    threads = clamp(Integer.parseInt(value), 1, MAX_THREADS);
+                    search = null;
+                }
+                case "multipv" -> lines = clamp(Integer.parseInt(value), 1, MAX_LINES);
+                case "move overhead" -> moveOverhead = clamp(Integer.parseInt(value), 0, 5000);
+                case "evalfile" -> {
+                    network = value.isEmpty() || value.equals("<empty>") ? null : Network.load(Path.of(value));
+                    search = null;
+                    if (network != null) {
+                        send("info string Loaded network " + value + " with " + network.hiddenSize()
+                                + " hidden units" + (network.vectorized() ? " on the Vector API" : ""));
+                    }
+                }
+                case "clear hash" -> {
+                    if (table != null) {
+                        table.clear();
+                    }
+                }
+                default -> send("info string Unknown option: " + name);
+            }
+        } catch (IOException | RuntimeException e) {
+            send("info string Invalid value for " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles "position startpos|fen <fen> [moves <moves>]". An invalid position or move is
+     * reported and leaves the position as it was.
+     */
+    private void setPosition(String[] tokens) {
+        ready.join();
+        awaitSearch();
+        int movesAt = Arrays.asList(tokens).indexOf("moves");
+        int end = movesAt < 0 ? tokens.length : movesAt;
+        Position next;
+        try {
+            if (tokens.length > 1 && tokens[1].equals("startpos")) {
+                next = Position.fromFen(START_FEN);
+            } else if (tokens.length > 2 && tokens[1].equals("fen")) {
+                next = Position.fromFen(String.join(" ", Arrays.asList(tokens).subList(2, end)));
+            } else {
+                send("info string Invalid position: expected startpos or fen");
+                return;
+            }
+        } catch (RuntimeException e) {
+            send("info string Invalid position: " + e.getMessage());
+            return;
+        }
+        MoveList legal = new MoveList();
+        for (int i = end + 1; i < tokens.length; i++) {
+            legal.clear();
+            MoveGenerator.generateLegal(next, legal);
+            int move = find(legal, tokens[i]);
+            if (move == Move.NONE) {
+                send("info string Illegal move: " + tokens[i]);
+                return;
+            }
+            next.makeMove(move);
+        }
+        position = next;
+    }
+
+    private static int find(MoveList moves, String text) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(text)) {
+                return moves.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Starts a search of the current position on the search thread. The search reports after
+     * every depth and ends with "bestmove", which for "go infinite" waits for "stop".
+     */
+    private void go(String[] tokens) {
+        ready.join();
+        awaitSearch();
+        int depth = Search.MAX_PLY;
+        long nodes = 0;
+        long moveTime = 0;
+        long[] time = {-1, -1};
+        long[] increment = {0, 0};
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        boolean infinite = false;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "depth" -> depth = Integer.parseInt(tokens[++i]);
+                case "nodes" -> nodes = Long.parseLong(tokens[++i]);
+                case "movetime" -> moveTime = Long.parseLong(tokens[++i]);
+                case "wtime" -> time[Position.WHITE] = Long.parseLong(tokens[++i]);
+                case "btime" -> time[Position.BLACK] = Long.parseLong(tokens[++i]);
+                case "winc" -> increment[Position.WHITE] = Long.parseLong(tokens[++i]);
+                case "binc" -> increment[Position.BLACK] = Long.parseLong(tokens[++i]);
+                case "movestogo" -> movesToGo = Math.max(Integer.parseInt(tokens[++i]), 1);
+                case "infinite" -> infinite = true;
+                default -> {
+                    // searchmoves, ponder and mate are not supported
+                }
+            }
+        }
+        int side = position.sideToMove();
+        long budget = 0;
+        if (moveTime > 0) {
+            budget = Math.max(moveTime - moveOverhead, 1);
+        } else if (time[side] >= 0 && !infinite) {
+            // An even share of the time left plus most of the increment, never more than is left
+            long share = time[side] / movesToGo + increment[side] * 3 / 4;
+            budget = Math.max(Math.min(share, time[side] - moveOverhead), 1);
+        }
+        SearchLimits limits = new SearchLimits(depth, nodes, budget);
+        Position root = new Position(position);
+        ParallelSearch parallel = search();
+        CountDownLatch stop = new CountDownLatch(infinite ? 1 : 0);
+        stopped = stop;
+        running = CompletableFuture.runAsync(() -> {
+            SearchResult result = parallel.search(root, limits, helpers, lines, this::info);
+            try {
+                stop.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int[] pv = result.pv();
+            send("bestmove " + (result.move() == Move.NONE ? "0000" : Move.toString(result.move()))
+                    + (pv.length > 1 ? " ponder " + Move.toString(pv[1]) : ""));
+        }, searchThread);
+    }
+
+    /**
+     * Prints the lines found at one depth.
+     */
+    private void info(List<SearchResult> found) {
+        for (int i = 0; i < found.size(); i++) {
+            SearchResult result = found.get(i);
+            StringBuilder line = new StringBuilder("info depth ").append(result.depth())
+                    .append(" multipv ").append(i + 1)
+                    .append(result.isMate() ? " score mate " + result.mateIn() : " score cp " + result.score())
+                    .append(" nodes ").append(result.nodes())
+                    .append(" nps ").append(result.nodes() * 1000 / Math.max(result.timeMillis(), 1))
+                    .append(" time ").append(result.timeMillis())
+                    .append(" pv");
+            for (int move : result.pv()) {
+                line.append(' ').append(Move.toString(move));
+            }
+            send(line.toString());
+        }
+    }
+
+    /**
+     * Stops the running search, if any, and waits for its bestmove.
+     */
+    private void stop() {
+        stopped.countDown();
+        while (!running.isDone()) {
+            // A search that had not yet started when asked clears the signal, so repeat it
+            if (search != null) {
+                search.stop();
+            }
+            try {
+                running.get(10, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still stopping
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for a running search that is not infinite to finish; an infinite one is stopped.
+     */
+    private void awaitSearch() {
+        if (stopped.getCount() > 0) {
+            stop();
+        }
+        running.join();
+    }
+
+    /**
+     * Searches every perft reference position to the given depth on a cleared table.
+     */
+    private void bench(int depth) {
+        ready.join();
+        awaitSearch();
+        ParallelSearch parallel = search();
+        long nodes = 0;
+        long millis = 0;
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            table.clear();
+            long start = System.currentTimeMillis();
+            SearchResult result = parallel.search(Position.fromFen(reference.fen()), SearchLimits.depth(depth), helpers);
+            long elapsed = System.currentTimeMillis() - start;
+            send("info string " + reference.name() + " " + Move.toString(result.move()) + " " + result.nodes()
+                    + " nodes " + elapsed + " ms");
+            nodes += result.nodes();
+            millis += elapsed;
+        }
+        send("info string bench depth " + depth + ": " + nodes + " nodes " + millis + " ms "
+                + nodes * 1000 / Math.max(millis, 1) + " nps");
+    }
+
+    private ParallelSearch search() {
+        if (table == null) {
+            table = new TranspositionTable(hashMegabytes);
+        }
+        if (search == null) {
+            Network loaded = network;
+            Supplier<Evaluator> evaluators = loaded == null ? ClassicalEvaluator::new : () -> new NnueEvaluator(loaded);
+            search = new ParallelSearch(table, threads, evaluators);
+        }
+        return search;
+    }
+
+    private synchronized void send(String line) {
+        out.println(line);
+        out.flush();
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
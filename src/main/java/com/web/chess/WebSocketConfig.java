@@ -1,6 +1,7 @@
 package com.web.chess;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -10,6 +11,11 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final AnalysisThrottle analysisThrottle;
+
+    public WebSocketConfig(AnalysisThrottle analysisThrottle) {
+        this.analysisThrottle = analysisThrottle;
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
@@ -22,4 +28,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/gs-guide-websocket");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(analysisThrottle);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(analysisThrottle);
+    }
+
 }
\ No newline at end of file
@@ -1,17 +1,38 @@
 package com.web.chess.controllers;
 import com.web.chess.ChessBoardGUI;
+import com.web.chess.engine.FenException;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.PolyglotBook;
+import com.web.chess.engine.Position;
 import com.web.chess.models.APIRequest;
+import com.web.chess.models.AnalysisRequest;
+import com.web.chess.models.AnalysisResponse;
+import com.web.chess.models.BookResponse;
 import com.web.chess.models.ClickRequest;
 import com.web.chess.models.ClickResponse;
 import com.web.chess.models.ConnectRequest;
 import com.web.chess.models.CreateRequest;
+import com.web.chess.models.EvalRequest;
+import com.web.chess.models.EvalResponse;
+import com.web.chess.models.GameMode;
+import com.web.chess.services.AnalysisService;
+import com.web.chess.services.AnalysisStreamService;
+import com.web.chess.services.BatchService;
 import com.web.chess.services.BoardToJSON;
+import com.web.chess.services.BookService;
+import com.web.chess.services.EngineService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
+import java.security.InvalidParameterException;
+import java.util.Locale;
 import com.web.chess.models.Player;
 import com.web.chess.services.GameService;
 
@@ -22,27 +43,49 @@ public class ChessController {
 
 	private final SimpMessagingTemplate messagingTemplate;
 	private final GameService gameService;
+	private final EngineService engineService;
+	private final AnalysisService analysisService;
+	private final BookService bookService;
+	private final AnalysisStreamService analysisStreamService;
+	private final BatchService batchService;
 
 	private static final Logger logger = LoggerFactory.getLogger(ChessController.class);
 
-	public ChessController(GameService gameService, SimpMessagingTemplate messagingTemplate) {
+	public ChessController(GameService gameService, EngineService engineService,
+			AnalysisService analysisService, BookService bookService,
+			AnalysisStreamService analysisStreamService, BatchService batchService,
+			SimpMessagingTemplate messagingTemplate) {
 		this.messagingTemplate = messagingTemplate;
 		this.gameService = gameService;
+		this.engineService = engineService;
+		this.analysisService = analysisService;
+		this.bookService = bookService;
+		this.analysisStreamService = analysisStreamService;
+		this.batchService = batchService;
 	}
 
 
+	/**
+	 * Sets up a game from a FEN. An invalid FEN is answered with 400 and the reason, e.g.
+	 * "Rank 5 has more than 8 squares (at character 23)", and leaves the game as it was.
+	 */
 	@PostMapping("/FEN")
-	public String fen(@RequestBody APIRequest request) {
+	public ResponseEntity<String> fen(@RequestBody APIRequest request) {
 		ChessBoardGUI gui = gameService.getBoard(request.gameId);
 		String inputFEN = request.data;
+		if (gui == null || inputFEN == null) {
+			return new ResponseEntity<>("Missing game or FEN", HttpStatus.BAD_REQUEST);
+		}
 		// Call server-side functions for the effects and send back the modified state.
 		try {
 			gui.setupBoard(inputFEN);
-		} catch (Exception e) {
-			// TODO add websocket response?
+		} catch (FenException exception) {
+			logger.debug("Rejected FEN for game {}: {}", request.gameId, exception.getMessage());
+			return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
 		}
-		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui.chessBoardSquares, gui.currentGamestate) );
-		return "SUCCESS";
+		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui) );
+		analysisStreamService.positionChanged(request.gameId);
+		return new ResponseEntity<>("SUCCESS", HttpStatus.OK);
 
 	}
 
@@ -50,7 +93,10 @@ public class ChessController {
 	public String start(@RequestBody APIRequest request) {
 		ChessBoardGUI gui = gameService.getBoard(request.gameId);
 		gui.startGame();
-		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui.chessBoardSquares, gui.currentGamestate) );
+		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui) );
+		analysisStreamService.positionChanged(request.gameId);
+		// The engine may have the first move
+		engineService.requestMove(request.gameId, gui);
 		return "SUCCESS";
 	}
 
@@ -64,13 +110,17 @@ public class ChessController {
 			row = -row + 7;
 		}
 		gui.buttonPress(row, col, request.color);
-		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui.chessBoardSquares, gui.currentGamestate) );
+		messagingTemplate.convertAndSend("/topic/game/" + request.gameId, BoardToJSON.clickToJSON(gui) );
+		// Restarts any analysis stream of the game if the click played a move
+		analysisStreamService.positionChanged(request.gameId);
+		engineService.requestMove(request.gameId, gui);
 		return "SUCCESS";
 	}
 
 	@PostMapping("/create")
-	public CreateRequest create(@RequestBody Player player) {
-		return new CreateRequest(player, gameService);
+	public CreateRequest create(@RequestBody Player player,
+			@RequestParam(defaultValue = "HUMAN") GameMode mode) {
+		return new CreateRequest(player, gameService, mode);
 	}
 
 	@PostMapping("/connect")
@@ -85,6 +135,75 @@ public class ChessController {
 			return new ResponseEntity<>(new ClickResponse(), HttpStatus.BAD_REQUEST);
 		}
 
-		return new ResponseEntity<>(BoardToJSON.clickToJSON(gui.chessBoardSquares, gui.currentGamestate), HttpStatus.OK);
+		return new ResponseEntity<>(BoardToJSON.clickToJSON(gui), HttpStatus.OK);
+	}
+
+	/**
+	 * Runs a Lazy SMP search of a game's position or a FEN, with the depth, threads and hash size
+	 * given in the request. Blocks until the search is done.
+	 */
+	@PostMapping("/analysis")
+	public ResponseEntity<AnalysisResponse> analysis(@RequestBody AnalysisRequest request) {
+		try {
+			return new ResponseEntity<>(analysisService.analyze(request), HttpStatus.OK);
+		} catch (InvalidParameterException exception) {
+			logger.debug("Rejected analysis request: {}", exception.getMessage());
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		} catch (IllegalStateException exception) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	/**
+	 * Evaluates a game's position or a FEN within the request's time budget. Results are cached
+	 * across all games, so a position that was evaluated before is answered at once.
+	 */
+	@PostMapping("/eval")
+	public ResponseEntity<EvalResponse> eval(@RequestBody EvalRequest request) {
+		try {
+			return new ResponseEntity<>(analysisService.evaluate(request), HttpStatus.OK);
+		} catch (InvalidParameterException exception) {
+			logger.debug("Rejected eval request: {}", exception.getMessage());
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		} catch (IllegalStateException exception) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	/**
+	 * Checks a stream of positions, one per line: NDJSON objects with a "fen" and an optional "id"
+	 * when the body is application/x-ndjson or application/json, and EPD or FEN lines otherwise.
+	 * Answers each position with an NDJSON line (see BatchPositionResult) as soon as it is checked,
+	 * in input order, while the rest of the body is still being read.
+	 */
+	@PostMapping("/batch/positions")
+	public ResponseEntity<StreamingResponseBody> batchPositions(
+			@RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+			InputStream body) {
+		BatchService.Format format = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")
+				? BatchService.Format.NDJSON : BatchService.Format.EPD;
+		try {
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(batchService.open(body, format));
+		} catch (IllegalStateException exception) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	/**
+	 * Returns the opening book's moves and weights for a game's current position, heaviest first.
+	 * The list is empty when the position is not in the book or no book is configured.
+	 */
+	@PostMapping("/book")
+	public ResponseEntity<BookResponse> book(@RequestBody APIRequest request) {
+		ChessBoardGUI gui = gameService.getBoard(request.gameId);
+		Position position = gui == null ? null : gui.positionCopy();
+		if (position == null) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		BookResponse response = new BookResponse();
+		for (PolyglotBook.BookMove move : bookService.moves(position)) {
+			response.moves.add(new BookResponse.Candidate(Move.toString(move.move()), move.weight()));
+		}
+		return new ResponseEntity<>(response, HttpStatus.OK);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,326 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Bitboards.KING_ATTACKS;
+import static com.web.chess.engine.Bitboards.PAWN_ATTACKS;
+import static com.web.chess.engine.Position.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Win/draw bitbases for king and pawn, king and rook, and king and queen against a bare king.
+ * The side with the extra piece (the strong side) never loses these, so one bit per position is
+ * enough: set when the strong side wins with best play. Positions are indexed as side to move
+ * (1 bit, 0 for the strong side), strong king, weak king and piece square (6 bits each) with the
+ * strong side as white; a black strong side is mirrored onto white first. Each table is 64 KB.
+ *
+ * The tables are built by retrograde iteration: mates are wins, then a strong-side position is a
+ * win if some move reaches a win and a weak-side position is a win if every move does, repeated
+ * until nothing changes. King and queen is built first, so that a promoting pawn can look up the
+ * result of the new queen (or rook).
+ *
+ * Like Magics, the tables are built on first use unless the system property webchess.bitbases
+ * names a directory holding them; missing files are written there after building. Run main() to
+ * write them ahead of time.
+ */
+public final class Bitbases {
+
+    public static final String DIRECTORY_PROPERTY = "webchess.bitbases";
+
+    /**
+     * Probe results, for the side to move.
+     */
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int UNKNOWN = 2;
+
+    private static final int FILE_MAGIC = 0x57434242; // "WCBB"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final int POSITIONS = 1 << 19;
+    private static final int[] TYPES = {QUEEN, ROOK, PAWN};
+    private static final String[] NAMES = {"kqk", "krk", "kpk"};
+
+    private Bitbases() {
+    }
+
+    /**
+     * The tables, built or read when first probed.
+     */
+    private static final class Tables {
+        static final long[][] BY_TYPE = loadTables();
+    }
+
+    /**
+     * Writes the tables into the directory given as the first argument.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: Bitbases <directory>");
+            System.exit(2);
+        }
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        long start = System.currentTimeMillis();
+        long[][] tables = Tables.BY_TYPE;
+        System.out.printf("Built in %d ms%n", System.currentTimeMillis() - start);
+        for (int i = 0; i < TYPES.length; i++) {
+            write(directory.resolve(NAMES[i] + ".bin"), TYPES[i], tables[TYPES[i]]);
+            System.out.printf("%s: %,d wins%n", NAMES[i], count(tables[TYPES[i]]));
+        }
+    }
+
+    /**
+     * Builds or reads the tables now rather than on the first probe, which may be in the middle of
+     * a timed search.
+     */
+    public static void load() {
+        if (Tables.BY_TYPE == null) {
+            throw new IllegalStateException("Bitbases failed to load");
+        }
+    }
+
+    /**
+     * Returns whether the position is one the bitbases answer: two bare kings, or kings and a
+     * single pawn, rook or queen.
+     */
+    public static boolean covers(Position position) {
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) == 2) {
+            return true;
+        }
+        if (Long.bitCount(occupied) != 3) {
+            return false;
+        }
+        long kings = position.pieces(WHITE, KING) | position.pieces(BLACK, KING);
+        int piece = position.pieceAt(Long.numberOfTrailingZeros(occupied & ~kings));
+        int type = piece % 6;
+        return type == PAWN || type == ROOK || type == QUEEN;
+    }
+
+    /**
+     * Returns WIN, DRAW or LOSS for the side to move with best play, or UNKNOWN if the position is
+     * not covered. The fifty-move rule is not taken into account.
+     */
+    public static int probe(Position position) {
+        if (!covers(position)) {
+            return UNKNOWN;
+        }
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) == 2) {
+            return DRAW;
+        }
+        long kings = position.pieces(WHITE, KING) | position.pieces(BLACK, KING);
+        int pieceSquare = Long.numberOfTrailingZeros(occupied & ~kings);
+        int piece = position.pieceAt(pieceSquare);
+        int strong = piece / 6;
+        // Mirror a black strong side so that it plays up the board as white
+        int flip = strong == WHITE ? 0 : 56;
+        int strongKing = position.kingSquare(strong) ^ flip;
+        int weakKing = position.kingSquare(strong ^ 1) ^ flip;
+        int strongToMove = position.sideToMove() == strong ? 1 : 0;
+        int index = index(1 - strongToMove, strongKing, weakKing, pieceSquare ^ flip);
+        if (!get(Tables.BY_TYPE[piece % 6], index)) {
+            return DRAW;
+        }
+        return strongToMove == 1 ? WIN : LOSS;
+    }
+
+    private static long[][] loadTables() {
+        long[][] tables = new long[6][];
+        String property = System.getProperty(DIRECTORY_PROPERTY);
+        Path directory = property == null ? null : Path.of(property);
+        for (int i = 0; i < TYPES.length; i++) {
+            Path file = directory == null ? null : directory.resolve(NAMES[i] + ".bin");
+            if (file != null) {
+                try {
+                    tables[TYPES[i]] = read(file, TYPES[i]);
+                    continue;
+                } catch (IOException | RuntimeException e) {
+                    // Missing or stale, fall back to generating
+                }
+            }
+            tables[TYPES[i]] = generate(TYPES[i], tables[QUEEN], tables[ROOK]);
+            if (file != null && !Files.exists(file)) {
+                try {
+                    write(file, TYPES[i], tables[TYPES[i]]);
+                } catch (IOException | RuntimeException e) {
+                    // The file is only a cache
+                }
+            }
+        }
+        return tables;
+    }
+
+    static int index(int weakToMove, int strongKing, int weakKing, int pieceSquare) {
+        return weakToMove << 18 | strongKing << 12 | weakKing << 6 | pieceSquare;
+    }
+
+    private static boolean get(long[] table, int index) {
+        return (table[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static long count(long[] table) {
+        long total = 0;
+        for (long word : table) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    /**
+     * Builds the table for king and the given piece type against king. Pawns need the queen and
+     * rook tables for promotions.
+     */
+    static long[] generate(int type, long[] queenTable, long[] rookTable) {
+        long[] table = new long[POSITIONS / 64];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int index = 0; index < POSITIONS; index++) {
+                if (get(table, index)) {
+                    continue;
+                }
+                int weakToMove = index >>> 18;
+                int strongKing = (index >>> 12) & 63;
+                int weakKing = (index >>> 6) & 63;
+                int piece = index & 63;
+                if (!valid(type, weakToMove, strongKing, weakKing, piece)) {
+                    continue;
+                }
+                boolean win = weakToMove == 0
+                        ? strongWins(table, type, strongKing, weakKing, piece, queenTable, rookTable)
+                        : weakLoses(table, type, strongKing, weakKing, piece);
+                if (win) {
+                    table[index >>> 6] |= 1L << index;
+                    changed = true;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static boolean valid(int type, int weakToMove, int strongKing, int weakKing, int piece) {
+        if (strongKing == weakKing || piece == strongKing || piece == weakKing
+                || (KING_ATTACKS[strongKing] & (1L << weakKing)) != 0) {
+            return false;
+        }
+        if (type == PAWN && (piece < 8 || piece >= 56)) {
+            return false;
+        }
+        // The side not to move cannot be in check
+        return weakToMove == 1 || (attacks(type, piece, (1L << strongKing) | (1L << weakKing)) & (1L << weakKing)) == 0;
+    }
+
+    private static long attacks(int type, int sq, long occupied) {
+        return switch (type) {
+            case PAWN -> PAWN_ATTACKS[WHITE][sq];
+            case ROOK -> Magics.rookAttacks(sq, occupied);
+            case QUEEN -> Magics.rookAttacks(sq, occupied) | Magics.bishopAttacks(sq, occupied);
+            default -> throw new IllegalArgumentException("No bitbase for piece type " + type);
+        };
+    }
+
+    /**
+     * Whether the strong side, to move, has a move to a position already known to be won.
+     */
+    private static boolean strongWins(long[] table, int type, int strongKing, int weakKing, int piece,
+                                      long[] queenTable, long[] rookTable) {
+        long kingTargets = KING_ATTACKS[strongKing] & ~KING_ATTACKS[weakKing] & ~(1L << piece);
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (get(table, index(1, to, weakKing, piece))) {
+                return true;
+            }
+        }
+        long occupied = (1L << strongKing) | (1L << weakKing) | (1L << piece);
+        if (type != PAWN) {
+            long targets = attacks(type, piece, occupied) & ~occupied;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (get(table, index(1, strongKing, weakKing, to))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int push = piece - 8;
+        if ((occupied & (1L << push)) != 0) {
+            return false;
+        }
+        if (push < 8) {
+            // A promotion wins if the new queen or rook does
+            return get(queenTable, index(1, strongKing, weakKing, push))
+                    || get(rookTable, index(1, strongKing, weakKing, push));
+        }
+        if (get(table, index(1, strongKing, weakKing, push))) {
+            return true;
+        }
+        int doublePush = piece - 16;
+        return piece >= 48 && (occupied & (1L << doublePush)) == 0
+                && get(table, index(1, strongKing, weakKing, doublePush));
+    }
+
+    /**
+     * Whether the weak side, to move, is mated or has only moves to positions known to be won for
+     * the strong side. Taking the piece or stalemate is a draw.
+     */
+    private static boolean weakLoses(long[] table, int type, int strongKing, int weakKing, int piece) {
+        // Slider attacks see through the weak king, so it cannot step back along the line
+        long attacked = KING_ATTACKS[strongKing] | attacks(type, piece, (1L << strongKing) | (1L << piece));
+        long targets = KING_ATTACKS[weakKing] & ~attacked;
+        if (targets == 0) {
+            // Mate if in check, stalemate otherwise
+            return (attacked & (1L << weakKing)) != 0;
+        }
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (to == piece || !get(table, index(0, strongKing, to, piece))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a table: a 16 byte header (format tag, version, piece type and word count) followed
+     * by the bits as little-endian longs, moved into place once complete like Magics.write.
+     */
+    static void write(Path file, int type, long[] table) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * table.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(type).putInt(table.length);
+        buffer.asLongBuffer().put(table);
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a table written by write() for the given piece type.
+     */
+    static long[] read(Path file, int type) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() != HEADER_BYTES + POSITIONS / 8 || buffer.getInt() != FILE_MAGIC
+                || buffer.getInt() != FILE_VERSION || buffer.getInt() != type
+                || buffer.getInt() != POSITIONS / 64) {
+            throw new IOException("Not a bitbase for this version: " + file);
+        }
+        long[] table = new long[POSITIONS / 64];
+        buffer.asLongBuffer().get(table);
+        return table;
+    }
+}
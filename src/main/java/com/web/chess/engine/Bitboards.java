@@ -0,0 +1,170 @@
+package com.web.chess.engine;
+
+/**
+ * Precomputed bitboard tables and attack functions. Squares are indexed the same way as the
+ * GUI's rows and columns: square = row * 8 + column, so bit 0 is a8 and bit 63 is h1.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;
+    public static final long RANK_1 = RANK_8 << 56;
+
+    /**
+     * Row and column steps for each direction, from white's point of view:
+     * UP, DOWN, LEFT, RIGHT, UP_LEFT, UP_RIGHT, DOWN_LEFT, DOWN_RIGHT.
+     */
+    private static final int[] ROW_STEP = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] COL_STEP = {0, 0, -1, 1, -1, 1, -1, 1};
+
+    /**
+     * Whether moving in a direction increases the square index. Decides which end of a ray the
+     * first blocker is found on.
+     */
+    private static final boolean[] POSITIVE = {false, true, false, true, false, false, true, true};
+
+    private static final int[] OPPOSITE = {1, 0, 3, 2, 7, 6, 5, 4};
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares attacked by a pawn of the given color (index 0 white, 1 black) standing on a square.
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * RAYS[direction][square] holds every square from square to the edge of the board, excluding
+     * square itself.
+     */
+    public static final long[][] RAYS = new long[8][64];
+
+    /**
+     * Squares strictly between two squares on a shared line, or 0 if they are not aligned.
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The full board-edge-to-board-edge line through two aligned squares, or 0.
+     */
+    private static final long[][] LINE = new long[64][64];
+
+    /**
+     * Direction index from the first square towards the second, or -1 if they are not aligned.
+     */
+    private static final byte[][] DIRECTION = new byte[64][64];
+
+    static {
+        int[][] knightSteps = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3;
+            int col = sq & 7;
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[sq] |= squareBit(row + step[0], col + step[1]);
+            }
+            for (int d = 0; d < 8; d++) {
+                KING_ATTACKS[sq] |= squareBit(row + ROW_STEP[d], col + COL_STEP[d]);
+                int r = row + ROW_STEP[d];
+                int c = col + COL_STEP[d];
+                while (onBoard(r, c)) {
+                    RAYS[d][sq] |= squareBit(r, c);
+                    r += ROW_STEP[d];
+                    c += COL_STEP[d];
+                }
+            }
+            // White pawns move towards row 0, black pawns towards row 7
+            PAWN_ATTACKS[0][sq] = squareBit(row - 1, col - 1) | squareBit(row - 1, col + 1);
+            PAWN_ATTACKS[1][sq] = squareBit(row + 1, col - 1) | squareBit(row + 1, col + 1);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                DIRECTION[a][b] = -1;
+            }
+            for (int d = 0; d < 8; d++) {
+                long ray = RAYS[d][a];
+                while (ray != 0) {
+                    int b = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    DIRECTION[a][b] = (byte) d;
+                    BETWEEN[a][b] = RAYS[d][a] & ~RAYS[d][b] & ~(1L << b);
+                    LINE[a][b] = RAYS[d][a] | RAYS[OPPOSITE[d]][a] | (1L << a);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row <= 7 && col >= 0 && col <= 7;
+    }
+
+    private static long squareBit(int row, int col) {
+        return onBoard(row, col) ? 1L << (row * 8 + col) : 0L;
+    }
+
+    /**
+     * Returns the square index of a row and column.
+     */
+    public static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    /**
+     * Returns the algebraic name of a square, e.g. "e4".
+     */
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (char) ('8' - (sq >> 3));
+    }
+
+    /**
+     * Returns the squares attacked along one direction, stopping at (and including) the first
+     * occupied square. Slower than the magic lookups; used to build and check them.
+     */
+    public static long rayAttacks(int direction, int sq, long occupied) {
+        long ray = RAYS[direction][sq];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = POSITIVE[direction]
+                    ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[direction][blocker];
+        }
+        return ray;
+    }
+
+    /**
+     * Returns the squares a rook on sq attacks, looked up in the magic tables (see Magics).
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return Magics.rookAttacks(sq, occupied);
+    }
+
+    /**
+     * Returns the squares a bishop on sq attacks, looked up in the magic tables (see Magics).
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return Magics.bishopAttacks(sq, occupied);
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Returns the direction index (see ROW_STEP) leading from a to b, or -1 if not aligned.
+     */
+    public static int direction(int a, int b) {
+        return DIRECTION[a][b];
+    }
+}
@@ -0,0 +1,16 @@
+package com.web.chess.engine;
+
+/**
+ * The hand-written Evaluation, with its own pawn structure cache.
+ */
+public final class ClassicalEvaluator implements Evaluator {
+
+    private static final int PAWN_TABLE_ENTRIES = 1 << 14;
+
+    private final PawnTable pawns = new PawnTable(PAWN_TABLE_ENTRIES);
+
+    @Override
+    public int evaluate(Position position) {
+        return Evaluation.evaluate(position, pawns);
+    }
+}
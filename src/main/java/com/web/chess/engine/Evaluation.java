@@ -0,0 +1,236 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Bitboards.FILE_A;
+import static com.web.chess.engine.Position.*;
+
+/**
+ * Static evaluation for the search, in centipawns from the point of view of the side to move.
+ *
+ * Material and piece-square values are tapered: each piece has a middlegame and an endgame
+ * value, and the two totals are blended by the game phase, which falls from MAX_PHASE to 0 as
+ * pieces come off. Position keeps the totals and the phase up to date as pieces are put and
+ * removed, so evaluating them costs nothing per leaf. Pawn structure (doubled, isolated and
+ * passed pawns) is scored from the pawns alone and can be cached in a PawnTable.
+ */
+public final class Evaluation {
+
+    /**
+     * Piece values by type, indexed like Position's piece types. The king is never traded, so it
+     * carries no material value.
+     */
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    /**
+     * Phase weight of each piece type; the starting position has MAX_PHASE.
+     */
+    static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * Material plus piece-square value of each piece code on each square, signed so that white
+     * pieces count up and black pieces count down. Position adds these up incrementally.
+     */
+    static final int[][] MIDDLEGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+
+    /**
+     * Passed pawn bonuses by rank, counted from the pawn's own side (1 is its starting rank).
+     */
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 15, 25, 40, 65, 100, 0};
+
+    /**
+     * Squares in front of a pawn, on its own and the adjacent files, that enemy pawns must not
+     * be on for it to be passed; and the files beside each file.
+     */
+    private static final long[][] PASSED_SPAN = new long[2][64];
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    /**
+     * Middlegame piece-square bonuses by type, from white's side of the board. Index 0 is a8, the
+     * same as Position's squares; black reads them through sq ^ 56.
+     */
+    private static final int[][] MIDDLEGAME_TABLES = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50},
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20},
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0},
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20},
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20}};
+
+    /**
+     * Endgame piece-square bonuses. Pawns gain with every rank they advance and the king heads
+     * for the centre; the other pieces keep their middlegame tables.
+     */
+    private static final int[][] ENDGAME_TABLES = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    60, 60, 60, 60, 60, 60, 60, 60,
+                    40, 40, 40, 40, 40, 40, 40, 40,
+                    25, 25, 25, 25, 25, 25, 25, 25,
+                    15, 15, 15, 15, 15, 15, 15, 15,
+                    5, 5, 5, 5, 5, 5, 5, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            MIDDLEGAME_TABLES[KNIGHT],
+            MIDDLEGAME_TABLES[BISHOP],
+            MIDDLEGAME_TABLES[ROOK],
+            MIDDLEGAME_TABLES[QUEEN],
+            {
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50}};
+
+    static {
+        for (int type = PAWN; type <= KING; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                MIDDLEGAME[type][sq] = VALUES[type] + MIDDLEGAME_TABLES[type][sq];
+                MIDDLEGAME[6 + type][sq] = -(VALUES[type] + MIDDLEGAME_TABLES[type][sq ^ 56]);
+                ENDGAME[type][sq] = VALUES[type] + ENDGAME_TABLES[type][sq];
+                ENDGAME[6 + type][sq] = -(VALUES[type] + ENDGAME_TABLES[type][sq ^ 56]);
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILE_A << (file - 1) : 0) | (file < 7 ? FILE_A << (file + 1) : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            long files = ADJACENT_FILES[sq & 7] | FILE_A << (sq & 7);
+            int row = sq >> 3;
+            // White pawns move towards row 0, black pawns towards row 7
+            PASSED_SPAN[WHITE][sq] = files & ((1L << (row * 8)) - 1);
+            PASSED_SPAN[BLACK][sq] = row == 7 ? 0 : files & -(1L << ((row + 1) * 8));
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    /**
+     * Returns the score of the position for the side to move, scoring the pawn structure from
+     * scratch.
+     */
+    public static int evaluate(Position position) {
+        return evaluate(position, null);
+    }
+
+    /**
+     * Returns the score of the position for the side to move, looking the pawn structure up in
+     * the given table (or scoring it from scratch if the table is null).
+     */
+    public static int evaluate(Position position, PawnTable pawns) {
+        int pawnScore = pawns == null ? pawnStructure(position) : pawns.probe(position);
+        int middlegame = position.middlegame() + middlegame(pawnScore);
+        int endgame = position.endgame() + endgame(pawnScore);
+        int phase = Math.min(position.phase(), MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.sideToMove() == WHITE ? score : -score;
+    }
+
+    /**
+     * Scores doubled, isolated and passed pawns, white minus black, as a middlegame and an
+     * endgame score packed by pack().
+     */
+    static int pawnStructure(Position position) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            int sign = color == WHITE ? 1 : -1;
+            long own = position.pieces(color, PAWN);
+            long enemy = position.pieces(color ^ 1, PAWN);
+            long pawns = own;
+            while (pawns != 0) {
+                int sq = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int file = sq & 7;
+                long ahead = PASSED_SPAN[color][sq] & FILE_A << file;
+                if ((own & ahead) != 0) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME;
+                    endgame += sign * DOUBLED_ENDGAME;
+                }
+                if ((own & ADJACENT_FILES[file]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                }
+                if ((enemy & PASSED_SPAN[color][sq]) == 0 && (own & ahead) == 0) {
+                    int rank = color == WHITE ? 7 - (sq >> 3) : sq >> 3;
+                    middlegame += sign * PASSED_MIDDLEGAME[rank];
+                    endgame += sign * PASSED_ENDGAME[rank];
+                }
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    /**
+     * Packs a middlegame and an endgame score into one int, the endgame in the low 16 bits.
+     */
+    static int pack(int middlegame, int endgame) {
+        return (middlegame << 16) + endgame;
+    }
+
+    static int middlegame(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+
+    static int endgame(int packed) {
+        return (short) packed;
+    }
+}
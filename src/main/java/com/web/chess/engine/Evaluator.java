@@ -0,0 +1,32 @@
+package com.web.chess.engine;
+
+/**
+ * A static evaluation the search can be run with. Scores are in centipawns from the point of view
+ * of the side to move and must stay below Search.KNOWN_WIN in size.
+ *
+ * An evaluator may keep state that follows the search's position, like NnueEvaluator's
+ * accumulators: the search calls reset() with the root, then makeMove() just before it plays each
+ * move and unmakeMove() just after it takes one back. An evaluator belongs to one search at a time.
+ */
+public interface Evaluator {
+
+    int evaluate(Position position);
+
+    /**
+     * Called when a search starts from the given position.
+     */
+    default void reset(Position position) {
+    }
+
+    /**
+     * Called before the move is played on the position.
+     */
+    default void makeMove(Position position, int move) {
+    }
+
+    /**
+     * Called after the last move played is taken back.
+     */
+    default void unmakeMove() {
+    }
+}
@@ -0,0 +1,317 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Position.*;
+
+/**
+ * Reads and writes FEN. The parser makes a single pass over the text and puts the pieces straight
+ * into a Position, so loading a position into a reused instance allocates nothing unless the FEN
+ * is invalid. Writing appends to a caller's StringBuilder for the same reason.
+ *
+ * Parsing accepts what the GUI always has: ranks that describe fewer than eight squares are padded
+ * with empty squares, and castling rights whose king or rook is not on its home square are
+ * dropped. The move counters may be left out, as in EPD, and default to 0 and 1. Anything else
+ * that is malformed, or a position with a missing or extra king, a pawn on the first or last rank,
+ * an en passant square no pawn just passed, or the side not to move in check, is a FenException.
+ */
+public final class Fen {
+
+    private static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+
+    /**
+     * Largest move counter accepted, well above anything a real game reaches.
+     */
+    private static final int MAX_COUNTER = 1_000_000;
+
+    private Fen() {
+    }
+
+    /**
+     * Parses a FEN into a new position.
+     *
+     * @throws FenException if the FEN is invalid
+     */
+    public static Position parse(CharSequence fen) {
+        Position position = new Position();
+        parse(fen, position);
+        return position;
+    }
+
+    /**
+     * Parses a FEN into the given position, replacing its contents and clearing its undo history.
+     * Surrounding whitespace is ignored. On failure the position is left in an unspecified state.
+     *
+     * @throws FenException if the FEN is invalid
+     */
+    public static void parse(CharSequence fen, Position into) {
+        int end = skipSpaces(fen, read(fen, 0, fen.length(), into), fen.length());
+        if (end != fen.length()) {
+            throw new FenException("Unexpected text after the FEN", end);
+        }
+    }
+
+    /**
+     * Parses the FEN that starts at or after text[start] and returns the index just past it, so
+     * callers can read whatever follows, such as EPD operations. Only text[start, end) is read.
+     *
+     * @throws FenException if the FEN is invalid
+     */
+    public static int read(CharSequence text, int start, int end, Position into) {
+        into.clear();
+        int placementStart = skipSpaces(text, start, end);
+        int i = readPlacement(text, placementStart, end, into);
+        for (int color = WHITE; color <= BLACK; color++) {
+            if (into.pieces(color, KING) == 0) {
+                throw new FenException(colorName(color) + " has no king", placementStart);
+            }
+        }
+
+        int sideStart = fieldStart(text, i, end, "side to move");
+        char side = text.charAt(sideStart);
+        i = sideStart + 1;
+        if ((side != 'w' && side != 'b') || !atFieldEnd(text, i, end)) {
+            throw new FenException("Side to move must be 'w' or 'b'", sideStart);
+        }
+        int sideToMove = side == 'w' ? WHITE : BLACK;
+
+        i = fieldStart(text, i, end, "castling rights");
+        int castlingRights = 0;
+        if (text.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; !atFieldEnd(text, i, end); i++) {
+                int right = castlingRight(text.charAt(i));
+                if (right == 0) {
+                    throw new FenException("Invalid castling right '" + text.charAt(i) + "'", i);
+                }
+                if ((castlingRights & right) != 0) {
+                    throw new FenException("Castling right '" + text.charAt(i) + "' given twice", i);
+                }
+                castlingRights |= right;
+            }
+        }
+        if (!atFieldEnd(text, i, end)) {
+            throw new FenException("Invalid castling rights", i);
+        }
+
+        i = fieldStart(text, i, end, "en passant square");
+        int epStart = i;
+        int epSquare = NO_SQUARE;
+        if (text.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < end && text.charAt(i) >= 'a' && text.charAt(i) <= 'h'
+                && text.charAt(i + 1) >= '1' && text.charAt(i + 1) <= '8') {
+            epSquare = Bitboards.square('8' - text.charAt(i + 1), text.charAt(i) - 'a');
+            i += 2;
+        } else {
+            throw new FenException("Invalid en passant square", i);
+        }
+        if (!atFieldEnd(text, i, end)) {
+            throw new FenException("Invalid en passant square", epStart);
+        }
+        if (epSquare != NO_SQUARE) {
+            checkEnPassant(into, sideToMove, epSquare, epStart);
+        }
+
+        int halfmoves = 0;
+        int fullmoves = 1;
+        int clocksStart = skipSpaces(text, i, end);
+        if (clocksStart > i && clocksStart < end && isDigit(text.charAt(clocksStart))) {
+            i = clocksStart;
+            for (; i < end && isDigit(text.charAt(i)); i++) {
+                halfmoves = counter(halfmoves, text.charAt(i), "Halfmove clock", clocksStart);
+            }
+            if (!atFieldEnd(text, i, end)) {
+                throw new FenException("Invalid halfmove clock", clocksStart);
+            }
+            int fullStart = fieldStart(text, i, end, "fullmove number");
+            fullmoves = 0;
+            for (i = fullStart; i < end && isDigit(text.charAt(i)); i++) {
+                fullmoves = counter(fullmoves, text.charAt(i), "Fullmove number", fullStart);
+            }
+            if (i == fullStart || !atFieldEnd(text, i, end)) {
+                throw new FenException("Invalid fullmove number", fullStart);
+            }
+            // Some tools write 0 for a position without history
+            fullmoves = Math.max(fullmoves, 1);
+        }
+
+        into.setState(sideToMove, castlingRights, epSquare, halfmoves, fullmoves);
+        if (into.checkers(sideToMove ^ 1) != 0) {
+            throw new FenException(colorName(sideToMove ^ 1) + " is in check with "
+                    + colorName(sideToMove).toLowerCase() + " to move", sideStart);
+        }
+        return i;
+    }
+
+    private static int readPlacement(CharSequence text, int start, int end, Position into) {
+        int row = 0;
+        int col = 0;
+        int i = start;
+        for (; i < end && text.charAt(i) > ' '; i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                if (row == 7) {
+                    throw new FenException("More than 8 ranks", i);
+                }
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 8) {
+                    throw new FenException("Rank " + (8 - row) + " has more than 8 squares", i);
+                }
+            } else {
+                int code = Position.codeOf(c);
+                if (code == EMPTY) {
+                    throw new FenException("Invalid piece '" + c + "'", i);
+                }
+                if (col == 8) {
+                    throw new FenException("Rank " + (8 - row) + " has more than 8 squares", i);
+                }
+                if (code % 6 == PAWN && (row == 0 || row == 7)) {
+                    throw new FenException("Pawn on rank " + (8 - row), i);
+                }
+                if (code % 6 == KING && into.pieces(code / 6, KING) != 0) {
+                    throw new FenException(colorName(code / 6) + " has more than one king", i);
+                }
+                into.put(Bitboards.square(row, col), code);
+                col++;
+            }
+        }
+        if (row != 7) {
+            throw new FenException(i == start ? "Missing piece placement" : "Expected 8 ranks, found " + (row + 1), i);
+        }
+        return i;
+    }
+
+    /**
+     * Checks that the pawn that just moved two squares passed the en passant square.
+     */
+    private static void checkEnPassant(Position position, int sideToMove, int epSquare, int index) {
+        int mover = sideToMove ^ 1;
+        int expectedRow = sideToMove == WHITE ? 2 : 5;
+        if (epSquare >> 3 != expectedRow) {
+            throw new FenException("En passant square must be on rank " + (8 - expectedRow) + " with "
+                    + colorName(sideToMove).toLowerCase() + " to move", index);
+        }
+        int pawn = mover == WHITE ? epSquare - 8 : epSquare + 8;
+        int origin = mover == WHITE ? epSquare + 8 : epSquare - 8;
+        if (position.pieceAt(pawn) != mover * 6 + PAWN
+                || position.pieceAt(epSquare) != EMPTY || position.pieceAt(origin) != EMPTY) {
+            throw new FenException("No " + colorName(mover).toLowerCase()
+                    + " pawn just moved past the en passant square", index);
+        }
+    }
+
+    /**
+     * Returns the position as a FEN string.
+     */
+    public static String toFen(Position position) {
+        StringBuilder out = new StringBuilder(90);
+        write(position, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the position's FEN to out. The en passant square is written whenever it is set,
+     * whether or not a capture there is possible.
+     */
+    public static void write(Position position, StringBuilder out) {
+        for (int row = 0; row < 8; row++) {
+            if (row > 0) {
+                out.append('/');
+            }
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int code = position.pieceAt(Bitboards.square(row, col));
+                if (code == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(PIECE_LETTERS.charAt(code));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+        }
+        out.append(position.sideToMove() == WHITE ? " w " : " b ");
+        int rights = position.castlingRights();
+        if (rights == 0) {
+            out.append('-');
+        } else {
+            appendIf(out, rights & WHITE_KINGSIDE, 'K');
+            appendIf(out, rights & WHITE_QUEENSIDE, 'Q');
+            appendIf(out, rights & BLACK_KINGSIDE, 'k');
+            appendIf(out, rights & BLACK_QUEENSIDE, 'q');
+        }
+        out.append(' ');
+        int ep = position.epSquare();
+        if (ep == NO_SQUARE) {
+            out.append('-');
+        } else {
+            out.append((char) ('a' + (ep & 7))).append((char) ('8' - (ep >> 3)));
+        }
+        out.append(' ').append(position.halfmoves()).append(' ').append(position.fullmoves());
+    }
+
+    private static void appendIf(StringBuilder out, int flag, char letter) {
+        if (flag != 0) {
+            out.append(letter);
+        }
+    }
+
+    private static int castlingRight(char c) {
+        switch (c) {
+            case 'K': return WHITE_KINGSIDE;
+            case 'Q': return WHITE_QUEENSIDE;
+            case 'k': return BLACK_KINGSIDE;
+            case 'q': return BLACK_QUEENSIDE;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Skips the whitespace before a field and returns where the field starts.
+     */
+    private static int fieldStart(CharSequence text, int i, int end, String field) {
+        int next = skipSpaces(text, i, end);
+        if (next == end) {
+            throw new FenException("Missing " + field, end);
+        }
+        if (next == i) {
+            throw new FenException("Expected a space before the " + field, i);
+        }
+        return next;
+    }
+
+    private static boolean atFieldEnd(CharSequence text, int i, int end) {
+        return i == end || text.charAt(i) <= ' ';
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end) {
+        while (i < end && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int counter(int value, char digit, String name, int index) {
+        value = value * 10 + (digit - '0');
+        if (value > MAX_COUNTER) {
+            throw new FenException(name + " is too large", index);
+        }
+        return value;
+    }
+
+    private static String colorName(int color) {
+        return color == WHITE ? "White" : "Black";
+    }
+}
@@ -0,0 +1,19 @@
+package com.web.chess.engine;
+
+/**
+ * Thrown by Fen for text that is not a valid FEN or describes a position that cannot occur. The
+ * message says what is wrong and index() where, counted in characters from the start of the text.
+ */
+public final class FenException extends IllegalArgumentException {
+
+    private final int index;
+
+    FenException(String reason, int index) {
+        super(reason + " (at character " + index + ")");
+        this.index = index;
+    }
+
+    public int index() {
+        return index;
+    }
+}
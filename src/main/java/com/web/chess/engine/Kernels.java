@@ -0,0 +1,46 @@
+package com.web.chess.engine;
+
+/**
+ * The arithmetic of a Network: the accumulator updates and the dense layers. VectorKernels does it
+ * with the incubating Vector API when the build has it (mvn -Pvector) and the JVM was started with
+ * --add-modules jdk.incubator.vector; ScalarKernels is the plain Java fallback, and gives the same
+ * results.
+ */
+interface Kernels {
+
+    /**
+     * Adds length weights starting at offset to the accumulator.
+     */
+    void add(short[] accumulator, short[] weights, int offset, int length);
+
+    /**
+     * Subtracts length weights starting at offset from the accumulator.
+     */
+    void subtract(short[] accumulator, short[] weights, int offset, int length);
+
+    /**
+     * Clamps the accumulator to [0, max] into output, starting at outputOffset.
+     */
+    void clip(short[] accumulator, int max, int[] output, int outputOffset, int length);
+
+    /**
+     * Returns the dot product of length inputs and length weights starting at weightOffset.
+     */
+    int dot(int[] input, int[] weights, int weightOffset, int length);
+
+    /**
+     * The Vector API kernels if they were compiled in and the module is there and usable,
+     * otherwise the scalar ones.
+     */
+    static Kernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernels) Class.forName("com.web.chess.engine.VectorKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // Fall through to the scalar kernels
+            }
+        }
+        return ScalarKernels.INSTANCE;
+    }
+}
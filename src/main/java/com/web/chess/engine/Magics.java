@@ -0,0 +1,251 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Bitboards.RAYS;
+import static com.web.chess.engine.Bitboards.rayAttacks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Magic bitboard lookup tables for rook and bishop attacks. The relevant occupancy of a square is
+ * multiplied by that square's magic number and the top bits of the product index a table of
+ * precomputed attack sets, so a slider lookup is a mask, a multiply, a shift and a load.
+ *
+ * The magics are searched for with a fixed seed, so every JVM builds the same tables. If the
+ * system property webchess.magics names a file, the tables are memory-mapped from it instead of
+ * being generated, and the file is written after generating when it does not exist yet. A file
+ * that cannot be read or does not match the board geometry is ignored. Run main() to write a file
+ * ahead of time.
+ */
+public final class Magics {
+
+    public static final String FILE_PROPERTY = "webchess.magics";
+
+    private static final int FILE_MAGIC = 0x57434D42; // "WCMB"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * Index 0-63 for rooks and 64-127 for bishops.
+     */
+    private static final long[] MASKS = new long[128];
+    private static final int[] SHIFTS = new int[128];
+    private static final int[] OFFSETS = new int[128];
+    private static final int TABLE_SIZE;
+
+    private static final long[] MAGICS;
+    private static final long[] ATTACKS;
+
+    static {
+        int offset = 0;
+        for (int i = 0; i < 128; i++) {
+            MASKS[i] = relevantOccupancy(i);
+            SHIFTS[i] = 64 - Long.bitCount(MASKS[i]);
+            OFFSETS[i] = offset;
+            offset += 1 << Long.bitCount(MASKS[i]);
+        }
+        TABLE_SIZE = offset;
+
+        String file = System.getProperty(FILE_PROPERTY);
+        long[][] tables = null;
+        if (file != null) {
+            try {
+                tables = read(Path.of(file));
+            } catch (IOException | RuntimeException e) {
+                // Missing or stale, fall back to generating
+            }
+        }
+        if (tables == null) {
+            long[] magics = findMagics();
+            tables = new long[][]{magics, fillAttacks(magics)};
+            if (file != null && !Files.exists(Path.of(file))) {
+                try {
+                    write(Path.of(file), tables[0], tables[1]);
+                } catch (IOException | RuntimeException e) {
+                    // The file is only a cache
+                }
+            }
+        }
+        MAGICS = tables[0];
+        ATTACKS = tables[1];
+    }
+
+    private Magics() {
+    }
+
+    /**
+     * Writes the tables to the file given as the first argument.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: Magics <file>");
+            System.exit(2);
+        }
+        write(Path.of(args[0]), MAGICS, ATTACKS);
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return ATTACKS[OFFSETS[sq] + (int) (((occupied & MASKS[sq]) * MAGICS[sq]) >>> SHIFTS[sq])];
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        int i = sq + 64;
+        return ATTACKS[OFFSETS[i] + (int) (((occupied & MASKS[i]) * MAGICS[i]) >>> SHIFTS[i])];
+    }
+
+    /**
+     * The squares whose occupancy can change a slider's attacks: its rays without the last square
+     * on each, since a piece on the edge cannot block anything behind it.
+     */
+    private static long relevantOccupancy(int index) {
+        int sq = index & 63;
+        int first = index < 64 ? 0 : 4;
+        long mask = 0;
+        for (int d = first; d < first + 4; d++) {
+            long ray = RAYS[d][sq];
+            long inner = ray;
+            while (ray != 0) {
+                int b = Long.numberOfTrailingZeros(ray);
+                ray &= ray - 1;
+                if (RAYS[d][b] == 0) {
+                    inner &= ~(1L << b);
+                }
+            }
+            mask |= inner;
+        }
+        return mask;
+    }
+
+    /**
+     * Attacks computed by walking the rays, used to build and check the tables.
+     */
+    private static long slowAttacks(int index, long occupied) {
+        int sq = index & 63;
+        int first = index < 64 ? 0 : 4;
+        long result = 0;
+        for (int d = first; d < first + 4; d++) {
+            result |= rayAttacks(d, sq, occupied);
+        }
+        return result;
+    }
+
+    /**
+     * Finds a magic for every rook and bishop square by trying sparse random numbers until one
+     * maps every occupancy subset to a slot without a conflicting attack set.
+     */
+    static long[] findMagics() {
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+        long[] magics = new long[128];
+        for (int i = 0; i < 128; i++) {
+            long mask = MASKS[i];
+            int count = 1 << Long.bitCount(mask);
+            long[] occupancies = new long[count];
+            long[] attacks = new long[count];
+            long subset = 0;
+            for (int n = 0; n < count; n++) {
+                // Carry-rippler: step through every subset of the mask
+                occupancies[n] = subset;
+                attacks[n] = slowAttacks(i, subset);
+                subset = (subset - mask) & mask;
+            }
+            long[] used = new long[count];
+            int[] epoch = new int[count];
+            for (int attempt = 1; ; attempt++) {
+                long magic = random.nextLong() & random.nextLong() & random.nextLong();
+                if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                    continue;
+                }
+                boolean ok = true;
+                for (int n = 0; n < count && ok; n++) {
+                    int slot = (int) ((occupancies[n] * magic) >>> SHIFTS[i]);
+                    if (epoch[slot] != attempt) {
+                        epoch[slot] = attempt;
+                        used[slot] = attacks[n];
+                    } else if (used[slot] != attacks[n]) {
+                        ok = false;
+                    }
+                }
+                if (ok) {
+                    magics[i] = magic;
+                    break;
+                }
+            }
+        }
+        return magics;
+    }
+
+    /**
+     * Builds the shared attack table for the given magics.
+     */
+    static long[] fillAttacks(long[] magics) {
+        long[] table = new long[TABLE_SIZE];
+        for (int i = 0; i < 128; i++) {
+            long mask = MASKS[i];
+            long subset = 0;
+            do {
+                table[OFFSETS[i] + (int) ((subset * magics[i]) >>> SHIFTS[i])] = slowAttacks(i, subset);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+        return table;
+    }
+
+    /**
+     * Writes the magics and attack table to a file: a 16 byte header (format tag, version and the
+     * two array lengths) followed by the arrays as little-endian longs. The file is written next
+     * to the target and moved into place, so readers never see a partial table.
+     */
+    static void write(Path file, long[] magics, long[] attacks) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * (magics.length + attacks.length))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(magics.length).putInt(attacks.length);
+        buffer.asLongBuffer().put(magics).put(attacks);
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Memory-maps a file written by write() and returns {magics, attacks}. Every square is
+     * checked against the ray walk for an empty and a full board before the tables are used.
+     */
+    static long[][] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != HEADER_BYTES + 8L * (128 + TABLE_SIZE)) {
+                throw new IOException("Unexpected size " + size + " for magic table " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt() != FILE_MAGIC || mapped.getInt() != FILE_VERSION
+                    || mapped.getInt() != 128 || mapped.getInt() != TABLE_SIZE) {
+                throw new IOException("Not a magic table for this version: " + file);
+            }
+            long[] magics = new long[128];
+            long[] attacks = new long[TABLE_SIZE];
+            mapped.asLongBuffer().get(magics).get(attacks);
+            for (int i = 0; i < 128; i++) {
+                for (long occupied : new long[]{0, MASKS[i]}) {
+                    int slot = OFFSETS[i] + (int) ((occupied * magics[i]) >>> SHIFTS[i]);
+                    if (attacks[slot] != slowAttacks(i, occupied)) {
+                        throw new IOException("Magic table " + file + " does not match");
+                    }
+                }
+            }
+            return new long[][]{magics, attacks};
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.web.chess.engine;
+
+/**
+ * Moves packed into an int, so move lists are plain int arrays:
+ * bits 0-5 origin square, bits 6-11 destination square, bits 12-15 flags and bits 16-18 the
+ * promotion piece type (0 when the move is not a promotion, since a pawn is never promoted to).
+ */
+public final class Move {
+
+    /**
+     * Never a legal move (a8 to a8), used where "no move" has to fit in an int.
+     */
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 4;
+    public static final int DOUBLE_PUSH = 8;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flags, int promotion) {
+        return from | to << 6 | flags << 12 | promotion << 16;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    /**
+     * Returns the piece type a pawn becomes, or 0 if the move is not a promotion.
+     */
+    public static int promotion(int move) {
+        return (move >>> 16) & 7;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE << 12)) != 0;
+    }
+
+    /**
+     * Returns a move in coordinate notation, e.g. "e2e4".
+     */
+    public static String moveName(int from, int to) {
+        return Bitboards.squareName(from) + Bitboards.squareName(to);
+    }
+
+    /**
+     * Returns the move in coordinate notation, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toString(int move) {
+        String name = moveName(from(move), to(move));
+        int promotion = promotion(move);
+        return promotion == 0 ? name : name + "pnbrqk".charAt(promotion);
+    }
+}
@@ -0,0 +1,293 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Bitboards.*;
+import static com.web.chess.engine.Position.*;
+
+/**
+ * Legal move generation on a bitboard Position. Pins and checks are resolved with masks instead of
+ * trying each move, so the only move that is simulated is en passant. Moves are written as packed
+ * ints (see Move) into a caller supplied MoveList.
+ */
+public final class MoveGenerator {
+
+    private static final long WHITE_DOUBLE_PUSH_ROW = RANK_8 << 40;
+    private static final long BLACK_DOUBLE_PUSH_ROW = RANK_8 << 16;
+    private static final long PROMOTION_ROWS = RANK_8 | RANK_1;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Fills moves with every legal move for the side to move.
+     */
+    public static void generateLegal(Position position, MoveList moves) {
+        generate(position, moves, ~0L, ~0L);
+    }
+
+    /**
+     * Fills moves with the legal captures and promotions (the noisy moves) for the side to move,
+     * en passant included.
+     */
+    public static void generateNoisy(Position position, MoveList moves) {
+        int us = position.sideToMove();
+        int ep = position.epSquare();
+        long enemy = position.colorOccupancy(us ^ 1);
+        generate(position, moves, enemy, enemy | PROMOTION_ROWS | (ep == NO_SQUARE ? 0 : 1L << ep));
+    }
+
+    /**
+     * Fills moves with the legal moves generateNoisy() leaves out: quiet moves, castling included.
+     */
+    public static void generateQuiet(Position position, MoveList moves) {
+        int us = position.sideToMove();
+        int ep = position.epSquare();
+        long enemy = position.colorOccupancy(us ^ 1);
+        generate(position, moves, ~enemy, ~(enemy | PROMOTION_ROWS | (ep == NO_SQUARE ? 0 : 1L << ep)));
+    }
+
+    /**
+     * Generates the legal moves whose destination is in pieceFilter for pieces, or in pawnFilter
+     * for pawns.
+     */
+    private static void generate(Position position, MoveList moves, long pieceFilter, long pawnFilter) {
+        moves.clear();
+        int us = position.sideToMove();
+        int king = position.kingSquare(us);
+        long checkMask = checkMask(position, us, king);
+        long pinned = position.pinned(us);
+        long pieces = position.colorOccupancy(us);
+        long pawns = position.pieces(us, PAWN);
+        if (checkMask == 0) {
+            // Double check, only the king can move
+            pieces &= position.pieces(us, KING);
+        }
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long filter = (pawns & (1L << from)) != 0 ? pawnFilter : pieceFilter;
+            addMoves(position, from, targets(position, from, king, checkMask, pinned) & filter, moves);
+        }
+    }
+
+    /**
+     * Returns whether a move, for example one read from the transposition table, is legal for the
+     * side to move and packed exactly as the generator would pack it.
+     */
+    public static boolean isLegal(Position position, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int code = position.pieceAt(from);
+        if (move == Move.NONE || code == EMPTY || code / 6 != position.sideToMove()
+                || (legalTargets(position, from) & (1L << to)) == 0) {
+            return false;
+        }
+        int promotion = Move.promotion(move);
+        if (code % 6 == PAWN && ((1L << to) & PROMOTION_ROWS) != 0) {
+            if (promotion < KNIGHT || promotion > QUEEN) {
+                return false;
+            }
+        } else if (promotion != 0) {
+            return false;
+        }
+        return move == Move.encode(from, to, flags(position, from, to), promotion);
+    }
+
+    /**
+     * Fills moves with the legal moves of the piece on the given square. Moves are generated for
+     * the color of that piece, whether or not it is that color's turn, except that en passant is
+     * only available to the side to move.
+     */
+    public static void generateLegal(Position position, int from, MoveList moves) {
+        moves.clear();
+        addMoves(position, from, legalTargets(position, from), moves);
+    }
+
+    /**
+     * Returns whether the given color has at least one legal move, stopping at the first piece
+     * that has one. The king is tried first since it is the only piece that can answer a double
+     * check. As with generateLegal(Position, int, MoveList), en passant only counts for the side
+     * to move.
+     */
+    public static boolean hasLegalMove(Position position, int color) {
+        int king = position.kingSquare(color);
+        if (king != NO_SQUARE && kingTargets(position, king, color) != 0) {
+            return true;
+        }
+        long checkMask = checkMask(position, color, king);
+        if (checkMask == 0) {
+            return false;
+        }
+        long pinned = position.pinned(color);
+        long pieces = position.colorOccupancy(color) & ~position.pieces(color, KING);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (targets(position, from, king, checkMask, pinned) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the set of squares the piece on the given square can legally move to. Castling is
+     * reported as the king's destination two squares away.
+     */
+    public static long legalTargets(Position position, int from) {
+        int code = position.pieceAt(from);
+        if (code == EMPTY) {
+            return 0;
+        }
+        int us = code / 6;
+        int king = position.kingSquare(us);
+        return targets(position, from, king, checkMask(position, us, king), position.pinned(us));
+    }
+
+    /**
+     * Returns the squares a non-king piece must move to in order to answer a check: everything when
+     * not in check, the checker and the squares between it and the king for a single check, and
+     * nothing for a double check.
+     */
+    private static long checkMask(Position position, int us, int king) {
+        if (king == NO_SQUARE) {
+            return ~0L;
+        }
+        long checkers = position.checkers(us);
+        if (checkers == 0) {
+            return ~0L;
+        }
+        if ((checkers & (checkers - 1)) != 0) {
+            return 0;
+        }
+        return checkers | between(king, Long.numberOfTrailingZeros(checkers));
+    }
+
+    private static long targets(Position position, int from, int king, long checkMask, long pinned) {
+        int code = position.pieceAt(from);
+        int us = code / 6;
+        int type = code % 6;
+        if (type == KING) {
+            return kingTargets(position, from, us);
+        }
+        long mask = checkMask;
+        if ((pinned & (1L << from)) != 0) {
+            mask &= line(king, from);
+        }
+        long occupied = position.occupied();
+        long targets;
+        switch (type) {
+            case PAWN:
+                return pawnTargets(position, from, us, king, mask);
+            case KNIGHT:
+                targets = KNIGHT_ATTACKS[from];
+                break;
+            case BISHOP:
+                targets = bishopAttacks(from, occupied);
+                break;
+            case ROOK:
+                targets = rookAttacks(from, occupied);
+                break;
+            default:
+                targets = queenAttacks(from, occupied);
+                break;
+        }
+        return targets & ~position.colorOccupancy(us) & mask;
+    }
+
+    /**
+     * Turns a set of destination squares into packed moves, adding the flags and promotions.
+     * Promotions are added queen first.
+     */
+    private static void addMoves(Position position, int from, long targets, MoveList moves) {
+        int type = position.pieceAt(from) % 6;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = flags(position, from, to);
+            if (type == PAWN && ((1L << to) & PROMOTION_ROWS) != 0) {
+                for (int promotion = QUEEN; promotion >= KNIGHT; promotion--) {
+                    moves.add(Move.encode(from, to, flags, promotion));
+                }
+                continue;
+            }
+            moves.add(Move.encode(from, to, flags, 0));
+        }
+    }
+
+    /**
+     * Returns the flags of the move of the piece on from to the given square.
+     */
+    private static int flags(Position position, int from, int to) {
+        int type = position.pieceAt(from) % 6;
+        int flags = position.pieceAt(to) == EMPTY ? 0 : Move.CAPTURE;
+        if (type == PAWN) {
+            if (to == position.epSquare() && (to & 7) != (from & 7)) {
+                flags = Move.CAPTURE | Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags = Move.DOUBLE_PUSH;
+            }
+        } else if (type == KING && Math.abs(to - from) == 2) {
+            flags = Move.CASTLE;
+        }
+        return flags;
+    }
+
+    private static long pawnTargets(Position position, int from, int us, int king, long mask) {
+        long bit = 1L << from;
+        long empty = ~position.occupied();
+        long single;
+        long pushes;
+        if (us == WHITE) {
+            single = (bit >>> 8) & empty;
+            pushes = single | (((single & WHITE_DOUBLE_PUSH_ROW) >>> 8) & empty);
+        } else {
+            single = (bit << 8) & empty;
+            pushes = single | (((single & BLACK_DOUBLE_PUSH_ROW) << 8) & empty);
+        }
+        long captures = PAWN_ATTACKS[us][from] & position.colorOccupancy(us ^ 1);
+        long targets = (pushes | captures) & mask;
+
+        int ep = position.epSquare();
+        if (ep != NO_SQUARE && us == position.sideToMove() && (PAWN_ATTACKS[us][from] & (1L << ep)) != 0) {
+            // En passant empties two squares on the same row, so test the resulting occupancy
+            // directly instead of relying on the pin and check masks.
+            long captured = 1L << (us == WHITE ? ep + 8 : ep - 8);
+            long after = (position.occupied() ^ bit ^ captured) | (1L << ep);
+            if (king == NO_SQUARE || (position.attackersTo(king, us ^ 1, after) & ~captured) == 0) {
+                targets |= 1L << ep;
+            }
+        }
+        return targets;
+    }
+
+    private static long kingTargets(Position position, int from, int us) {
+        long danger = position.attacks(us ^ 1);
+        long checkers = position.checkers(us);
+        long sliders = checkers & ~position.pieces(us ^ 1, PAWN) & ~position.pieces(us ^ 1, KNIGHT);
+        while (sliders != 0) {
+            // The king must not be able to hide behind itself from a slider
+            int checker = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            danger |= line(from, checker) & ~(1L << checker);
+        }
+        long targets = KING_ATTACKS[from] & ~position.colorOccupancy(us) & ~danger;
+
+        int home = us == WHITE ? 60 : 4;
+        int rights = position.castlingRights() >> (us * 2);
+        if (from != home || (rights & 3) == 0 || checkers != 0) {
+            return targets;
+        }
+        long occupied = position.occupied();
+        if ((rights & WHITE_KINGSIDE) != 0
+                && (occupied & (3L << (home + 1))) == 0
+                && (danger & (3L << (home + 1))) == 0) {
+            targets |= 1L << (home + 2);
+        }
+        if ((rights & WHITE_QUEENSIDE) != 0
+                && (occupied & (7L << (home - 3))) == 0
+                && (danger & (3L << (home - 2))) == 0) {
+            targets |= 1L << (home - 2);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,59 @@
+package com.web.chess.engine;
+
+/**
+ * A reusable buffer of packed moves (see Move). Callers keep one list per ply or per game and
+ * clear it between uses, so generating moves does not allocate.
+ */
+public final class MoveList {
+
+    /**
+     * No legal chess position has more than 218 moves.
+     */
+    public static final int CAPACITY = 256;
+
+    /**
+     * Enough for the moves of any single piece: a queen has at most 27, a promoting pawn 12.
+     */
+    public static final int PIECE_CAPACITY = 32;
+
+    private final int[] moves;
+    private int size;
+
+    /**
+     * Creates a list that can hold the moves of any position.
+     */
+    public MoveList() {
+        this(CAPACITY);
+    }
+
+    /**
+     * Creates a list for at most capacity moves.
+     */
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,294 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Position.*;
+
+/**
+ * Hands out the legal moves of a position one at a time, best first, generating them in stages
+ * so that a cutoff on an early move saves generating and sorting the rest:
+ *
+ * 1. the hash move;
+ * 2. captures and promotions that do not lose material, most valuable victim first, then least
+ *    valuable attacker (MVV-LVA);
+ * 3. the two killer moves of the ply, quiet moves that caused a cutoff in a sibling node;
+ * 4. the other quiet moves, by history score;
+ * 5. the captures static exchange evaluation (SEE) says lose material.
+ *
+ * In check every evasion is generated at once and ordered the same way. The quiescence search
+ * only asks for stage 2. The Search keeps one picker per ply.
+ */
+final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int GENERATE_NOISY = 1;
+    private static final int GOOD_NOISY = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIET = 5;
+    private static final int QUIET = 6;
+    private static final int BAD_NOISY = 7;
+    private static final int GENERATE_EVASIONS = 8;
+    private static final int EVASIONS = 9;
+    private static final int DONE = 10;
+
+    /**
+     * Piece values for SEE. The king has to outweigh everything it could win.
+     */
+    private static final int[] SEE_VALUES = {100, 320, 330, 500, 900, 20000};
+
+    /**
+     * More captures than there are pieces cannot happen on one square.
+     */
+    private static final int SEE_DEPTH = 32;
+
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveList.CAPACITY];
+    private final int[] badNoisy = new int[MoveList.CAPACITY];
+    private final int[] seeGains = new int[SEE_DEPTH];
+    private int badCount;
+    private int index;
+
+    private Position position;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int[][] history;
+    private boolean noisyOnly;
+    private int stage;
+
+    /**
+     * Starts picking the moves of the position for a full-width node.
+     */
+    void init(Position position, int hashMove, int firstKiller, int secondKiller, int[][] history) {
+        start(position, hashMove, firstKiller, secondKiller, history, false);
+    }
+
+    /**
+     * Starts picking the captures and promotions that do not lose material, or every evasion
+     * when in check, for the quiescence search.
+     */
+    void initNoisy(Position position, int[][] history) {
+        start(position, Move.NONE, Move.NONE, Move.NONE, history, true);
+    }
+
+    private void start(Position position, int hashMove, int firstKiller, int secondKiller, int[][] history,
+                       boolean noisyOnly) {
+        this.position = position;
+        this.hashMove = hashMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.history = history;
+        this.noisyOnly = noisyOnly;
+        badCount = 0;
+        if (position.checkers(position.sideToMove()) != 0) {
+            stage = GENERATE_EVASIONS;
+        } else {
+            stage = noisyOnly ? GENERATE_NOISY : HASH;
+        }
+    }
+
+    /**
+     * Returns the next move, or Move.NONE when there are no more.
+     */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH:
+                    stage = GENERATE_NOISY;
+                    if (MoveGenerator.isLegal(position, hashMove)) {
+                        return hashMove;
+                    }
+                    break;
+                case GENERATE_NOISY:
+                    MoveGenerator.generateNoisy(position, moves);
+                    for (int i = 0; i < moves.size(); i++) {
+                        scores[i] = noisyScore(moves.get(i));
+                    }
+                    index = 0;
+                    stage = GOOD_NOISY;
+                    break;
+                case GOOD_NOISY:
+                    while (index < moves.size()) {
+                        int move = pickBest();
+                        if (move == hashMove) {
+                            continue;
+                        }
+                        if (!winsOrEquals(move)) {
+                            badNoisy[badCount++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = noisyOnly ? DONE : FIRST_KILLER;
+                    break;
+                case FIRST_KILLER:
+                    stage = SECOND_KILLER;
+                    if (isUsableKiller(firstKiller)) {
+                        return firstKiller;
+                    }
+                    break;
+                case SECOND_KILLER:
+                    stage = GENERATE_QUIET;
+                    if (secondKiller != firstKiller && isUsableKiller(secondKiller)) {
+                        return secondKiller;
+                    }
+                    break;
+                case GENERATE_QUIET:
+                    MoveGenerator.generateQuiet(position, moves);
+                    for (int i = 0; i < moves.size(); i++) {
+                        int move = moves.get(i);
+                        scores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+                    }
+                    index = 0;
+                    stage = QUIET;
+                    break;
+                case QUIET:
+                    while (index < moves.size()) {
+                        int move = pickBest();
+                        if (move != hashMove && move != firstKiller && move != secondKiller) {
+                            return move;
+                        }
+                    }
+                    index = 0;
+                    stage = BAD_NOISY;
+                    break;
+                case BAD_NOISY:
+                    if (index < badCount) {
+                        return badNoisy[index++];
+                    }
+                    stage = DONE;
+                    break;
+                case GENERATE_EVASIONS:
+                    MoveGenerator.generateLegal(position, moves);
+                    for (int i = 0; i < moves.size(); i++) {
+                        int move = moves.get(i);
+                        if (move == hashMove) {
+                            scores[i] = Integer.MAX_VALUE;
+                        } else if (Move.isCapture(move) || Move.promotion(move) != 0) {
+                            scores[i] = (1 << 24) + noisyScore(move);
+                        } else {
+                            scores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+                        }
+                    }
+                    index = 0;
+                    stage = EVASIONS;
+                    break;
+                case EVASIONS:
+                    if (index < moves.size()) {
+                        return pickBest();
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    /**
+     * Moves the highest scored of the remaining moves to the front and returns it. Selection is
+     * cheaper than sorting when a cutoff comes early.
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        moves.set(best, moves.get(index));
+        scores[best] = scores[index];
+        moves.set(index, move);
+        index++;
+        return move;
+    }
+
+    /**
+     * MVV-LVA: the value of the captured piece (and of the promotion piece), less a little for a
+     * more valuable capturing piece.
+     */
+    private int noisyScore(int move) {
+        int victim = (move & (Move.EN_PASSANT << 12)) != 0 ? PAWN : position.pieceAt(Move.to(move)) % 6;
+        int value = Move.isCapture(move) ? Evaluation.VALUES[victim] * 8 : 0;
+        int promotion = Move.promotion(move);
+        if (promotion != 0) {
+            value += Evaluation.VALUES[promotion] * 8;
+        }
+        return value - position.pieceAt(Move.from(move)) % 6;
+    }
+
+    /**
+     * Whether a noisy move does not lose material. Taking a piece worth at least the capturing
+     * one never does, so SEE only runs for the other captures. Underpromotions count as losing.
+     */
+    private boolean winsOrEquals(int move) {
+        int promotion = Move.promotion(move);
+        if (promotion != 0) {
+            return promotion == QUEEN;
+        }
+        int attacker = position.pieceAt(Move.from(move)) % 6;
+        int victim = (move & (Move.EN_PASSANT << 12)) != 0 ? PAWN : position.pieceAt(Move.to(move)) % 6;
+        return SEE_VALUES[victim] >= SEE_VALUES[attacker] || see(position, move, seeGains) >= 0;
+    }
+
+    private boolean isUsableKiller(int killer) {
+        return killer != Move.NONE && killer != hashMove && !Move.isCapture(killer) && Move.promotion(killer) == 0
+                && MoveGenerator.isLegal(position, killer);
+    }
+
+    /**
+     * Static exchange evaluation: the material the side to move wins or loses (negative) on the
+     * destination square if both sides keep recapturing with their least valuable attacker and
+     * either may stop when continuing would lose. Pins are not taken into account; sliders
+     * behind the capturing pieces (x-rays) are.
+     */
+    static int see(Position position, int move) {
+        return see(position, move, new int[SEE_DEPTH]);
+    }
+
+    private static int see(Position position, int move, int[] gain) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long occupied = position.occupied() ^ (1L << from);
+        if ((move & (Move.EN_PASSANT << 12)) != 0) {
+            occupied ^= 1L << (position.sideToMove() == WHITE ? to + 8 : to - 8);
+            gain[0] = SEE_VALUES[PAWN];
+        } else {
+            int captured = position.pieceAt(to);
+            gain[0] = captured == EMPTY ? 0 : SEE_VALUES[captured % 6];
+        }
+        int onSquare = position.pieceAt(from) % 6;
+        int side = position.sideToMove() ^ 1;
+        int depth = 0;
+        while (depth < gain.length - 1) {
+            long attackers = (position.attackersTo(to, WHITE, occupied) | position.attackersTo(to, BLACK, occupied))
+                    & occupied;
+            long ours = attackers & position.colorOccupancy(side);
+            if (ours == 0) {
+                break;
+            }
+            int type = PAWN;
+            long bit = 0;
+            for (; type <= KING; type++) {
+                bit = ours & position.pieces(side, type);
+                if (bit != 0) {
+                    break;
+                }
+            }
+            if (type == KING && (attackers & position.colorOccupancy(side ^ 1)) != 0) {
+                // The king cannot take into a defended square
+                break;
+            }
+            depth++;
+            gain[depth] = SEE_VALUES[onSquare] - gain[depth - 1];
+            occupied ^= bit & -bit;
+            onSquare = type;
+            side ^= 1;
+        }
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+}
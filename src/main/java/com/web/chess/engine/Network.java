@@ -0,0 +1,240 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Position.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * A small quantized evaluation network of the NNUE kind, read from a file. Immutable once loaded,
+ * so one Network serves every thread; the per-search state lives in NnueEvaluator.
+ *
+ * Input features are HalfKP: for each side, its own king square times every other piece (type,
+ * whether it is that side's, and square), with the board turned round for black so both sides
+ * see themselves playing up the board. A position has at most thirty active features per side,
+ * and a move changes only a few of them, which is what makes the first layer cheap to keep up to
+ * date. Its output, one accumulator of hiddenSize sixteen-bit sums per side, is clipped to
+ * [0, 127], the side to move's half first, and goes through a dense layer of 32 clipped neurons
+ * and then a single output neuron.
+ *
+ * File format, all little-endian: magic "WCNN", version and hiddenSize as ints; then the feature
+ * biases (hiddenSize shorts), feature weights (FEATURES * hiddenSize shorts, one row of
+ * hiddenSize per feature), hidden biases (32 ints), hidden weights (32 * 2 * hiddenSize bytes,
+ * one row per neuron), the output bias (int) and output weights (32 bytes). hiddenSize must be a
+ * positive multiple of 32.
+ */
+public final class Network {
+
+    public static final int FEATURES = 64 * 10 * 64;
+    public static final int HIDDEN_NEURONS = 32;
+
+    /**
+     * Activations are clipped to [0, CLIP]. Hidden sums are shifted right by HIDDEN_SHIFT before
+     * clipping, and the output is in units of 1/OUTPUT_DIVISOR centipawn.
+     */
+    static final int CLIP = 127;
+    static final int HIDDEN_SHIFT = 6;
+    static final int OUTPUT_DIVISOR = 16;
+
+    private static final int FILE_MAGIC = 0x4E4E4357; // "WCNN"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final int hiddenSize;
+    private final short[] featureBiases;
+    private final short[] featureWeights;
+    private final int[] hiddenBiases;
+    private final int[] hiddenWeights;
+    private final int outputBias;
+    private final int[] outputWeights;
+    private final Kernels kernels;
+
+    private Network(int hiddenSize, short[] featureBiases, short[] featureWeights, int[] hiddenBiases,
+                    int[] hiddenWeights, int outputBias, int[] outputWeights, Kernels kernels) {
+        this.hiddenSize = hiddenSize;
+        this.featureBiases = featureBiases;
+        this.featureWeights = featureWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.hiddenWeights = hiddenWeights;
+        this.outputBias = outputBias;
+        this.outputWeights = outputWeights;
+        this.kernels = kernels;
+    }
+
+    /**
+     * Reads a network written by write(), running on the Vector API if it is available.
+     *
+     * @throws IOException if the file cannot be read or is not a network of this version
+     */
+    public static Network load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+            throw new IOException("Not a network for this version: " + file);
+        }
+        int hiddenSize = buffer.getInt();
+        if (hiddenSize <= 0 || hiddenSize % 32 != 0 || buffer.capacity() != fileBytes(hiddenSize)) {
+            throw new IOException("Network " + file + " is " + buffer.capacity() + " bytes, hidden size " + hiddenSize);
+        }
+        short[] featureBiases = new short[hiddenSize];
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        buffer.asShortBuffer().get(featureBiases);
+        buffer.position(buffer.position() + 2 * hiddenSize);
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + 2 * featureWeights.length);
+        int[] hiddenBiases = new int[HIDDEN_NEURONS];
+        buffer.asIntBuffer().get(hiddenBiases);
+        buffer.position(buffer.position() + 4 * HIDDEN_NEURONS);
+        int[] hiddenWeights = new int[HIDDEN_NEURONS * 2 * hiddenSize];
+        for (int i = 0; i < hiddenWeights.length; i++) {
+            hiddenWeights[i] = buffer.get();
+        }
+        int outputBias = buffer.getInt();
+        int[] outputWeights = new int[HIDDEN_NEURONS];
+        for (int i = 0; i < HIDDEN_NEURONS; i++) {
+            outputWeights[i] = buffer.get();
+        }
+        return new Network(hiddenSize, featureBiases, featureWeights, hiddenBiases, hiddenWeights,
+                outputBias, outputWeights, Kernels.best());
+    }
+
+    private static int fileBytes(int hiddenSize) {
+        return HEADER_BYTES + 2 * hiddenSize + 2 * FEATURES * hiddenSize + 4 * HIDDEN_NEURONS
+                + HIDDEN_NEURONS * 2 * hiddenSize + 4 + HIDDEN_NEURONS;
+    }
+
+    /**
+     * Writes the network, moved into place once complete like Bitbases.write.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(fileBytes(hiddenSize)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(hiddenSize);
+        for (short bias : featureBiases) {
+            buffer.putShort(bias);
+        }
+        for (short weight : featureWeights) {
+            buffer.putShort(weight);
+        }
+        for (int bias : hiddenBiases) {
+            buffer.putInt(bias);
+        }
+        for (int weight : hiddenWeights) {
+            buffer.put((byte) weight);
+        }
+        buffer.putInt(outputBias);
+        for (int weight : outputWeights) {
+            buffer.put((byte) weight);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates a network of small random weights. It plays no better than chance, but has the
+     * shape of a real one, for tests and benchmarks.
+     */
+    public static Network random(int hiddenSize, long seed) {
+        if (hiddenSize <= 0 || hiddenSize % 32 != 0) {
+            throw new IllegalArgumentException("hiddenSize must be a positive multiple of 32: " + hiddenSize);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureBiases = new short[hiddenSize];
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        for (int i = 0; i < hiddenSize; i++) {
+            featureBiases[i] = (short) random.nextInt(-64, 64);
+        }
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) random.nextInt(-32, 33);
+        }
+        int[] hiddenBiases = random.ints(HIDDEN_NEURONS, -1024, 1024).toArray();
+        int[] hiddenWeights = random.ints(HIDDEN_NEURONS * 2 * hiddenSize, -16, 17).toArray();
+        int[] outputWeights = random.ints(HIDDEN_NEURONS, -64, 65).toArray();
+        return new Network(hiddenSize, featureBiases, featureWeights, hiddenBiases, hiddenWeights,
+                random.nextInt(-256, 256), outputWeights, Kernels.best());
+    }
+
+    /**
+     * Returns this network running on the given kernels.
+     */
+    Network withKernels(Kernels kernels) {
+        return new Network(hiddenSize, featureBiases, featureWeights, hiddenBiases, hiddenWeights,
+                outputBias, outputWeights, kernels);
+    }
+
+    /**
+     * This network on the plain Java kernels, to compare against the Vector API.
+     */
+    public Network scalar() {
+        return withKernels(ScalarKernels.INSTANCE);
+    }
+
+    /**
+     * Whether this network runs on the Vector API.
+     */
+    public boolean vectorized() {
+        return !(kernels instanceof ScalarKernels);
+    }
+
+    public int hiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Returns the feature of the given piece, seen by the given side with its king on kingSquare.
+     * Kings themselves are not features.
+     */
+    static int feature(int perspective, int kingSquare, int code, int sq) {
+        // Turn the board round for black; rows are flipped by sq ^ 56 like in Evaluation
+        int flip = perspective == WHITE ? 0 : 56;
+        int piece = (code % 6) * 2 + (code / 6 == perspective ? 0 : 1);
+        return ((kingSquare ^ flip) * 10 + piece) * 64 + (sq ^ flip);
+    }
+
+    /**
+     * Sets the accumulator to the sum of the biases and the rows of every feature the position
+     * has for the given side.
+     */
+    void refresh(Position position, int perspective, short[] accumulator) {
+        System.arraycopy(featureBiases, 0, accumulator, 0, hiddenSize);
+        int kingSquare = position.kingSquare(perspective);
+        long pieces = position.occupied() & ~position.pieces(WHITE, KING) & ~position.pieces(BLACK, KING);
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addFeature(accumulator, feature(perspective, kingSquare, position.pieceAt(sq), sq));
+        }
+    }
+
+    void addFeature(short[] accumulator, int feature) {
+        kernels.add(accumulator, featureWeights, feature * hiddenSize, hiddenSize);
+    }
+
+    void removeFeature(short[] accumulator, int feature) {
+        kernels.subtract(accumulator, featureWeights, feature * hiddenSize, hiddenSize);
+    }
+
+    /**
+     * Runs the dense layers on the two accumulators and returns the score, in centipawns, for
+     * the side whose accumulator is us. The buffers hold 2 * hiddenSize and HIDDEN_NEURONS ints.
+     */
+    int propagate(short[] us, short[] them, int[] input, int[] hidden) {
+        kernels.clip(us, CLIP, input, 0, hiddenSize);
+        kernels.clip(them, CLIP, input, hiddenSize, hiddenSize);
+        int inputs = 2 * hiddenSize;
+        for (int i = 0; i < HIDDEN_NEURONS; i++) {
+            int sum = hiddenBiases[i] + kernels.dot(input, hiddenWeights, i * inputs, inputs);
+            hidden[i] = Math.max(0, Math.min(sum >> HIDDEN_SHIFT, CLIP));
+        }
+        return (outputBias + kernels.dot(hidden, outputWeights, 0, HIDDEN_NEURONS)) / OUTPUT_DIVISOR;
+    }
+}
@@ -0,0 +1,177 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Position.*;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates with a Network, keeping its first layer up to date move by move instead of summing
+ * every feature at every leaf.
+ *
+ * There is one accumulator entry per ply of the search. makeMove() only notes which pieces the
+ * move takes off and puts on the board; the accumulators are worked out when a position is
+ * evaluated, by applying those changes to the nearest ply above whose accumulators are known.
+ * Interior nodes that are never evaluated cost nothing. A king move changes every feature of its
+ * own side, so that side's accumulator is then rebuilt from the position instead.
+ */
+public final class NnueEvaluator implements Evaluator {
+
+    /**
+     * The evaluation is kept below the scores the search gives known wins and mates.
+     */
+    private static final int MAX_SCORE = Search.KNOWN_WIN - 1;
+
+    private final Network network;
+    private final int[] input;
+    private final int[] hidden = new int[Network.HIDDEN_NEURONS];
+    private Entry[] entries = new Entry[Search.MAX_PLY + 2];
+    private int top;
+
+    /**
+     * The accumulators of one ply, and the pieces the move into it removed and added: at most two
+     * of each, for captures, promotions and castling.
+     */
+    private static final class Entry {
+        final short[][] accumulators;
+        final boolean[] computed = new boolean[2];
+        final boolean[] kingMoved = new boolean[2];
+        final int[] removedCodes = new int[2];
+        final int[] removedSquares = new int[2];
+        final int[] addedCodes = new int[2];
+        final int[] addedSquares = new int[2];
+        int removed;
+        int added;
+
+        Entry(int hiddenSize) {
+            accumulators = new short[2][hiddenSize];
+        }
+
+        void remove(int code, int sq) {
+            removedCodes[removed] = code;
+            removedSquares[removed++] = sq;
+        }
+
+        void add(int code, int sq) {
+            addedCodes[added] = code;
+            addedSquares[added++] = sq;
+        }
+    }
+
+    public NnueEvaluator(Network network) {
+        this.network = network;
+        this.input = new int[2 * network.hiddenSize()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry(network.hiddenSize());
+        }
+    }
+
+    @Override
+    public void reset(Position position) {
+        top = 0;
+        Entry entry = entries[0];
+        for (int color = WHITE; color <= BLACK; color++) {
+            network.refresh(position, color, entry.accumulators[color]);
+            entry.computed[color] = true;
+        }
+    }
+
+    @Override
+    public void makeMove(Position position, int move) {
+        if (top + 1 == entries.length) {
+            // Only a search deeper than MAX_PLY, or one not started with reset(), gets here
+            int size = entries.length;
+            entries = Arrays.copyOf(entries, size * 2);
+            for (int i = size; i < entries.length; i++) {
+                entries[i] = new Entry(network.hiddenSize());
+            }
+        }
+        Entry entry = entries[++top];
+        entry.computed[WHITE] = entry.computed[BLACK] = false;
+        entry.kingMoved[WHITE] = entry.kingMoved[BLACK] = false;
+        entry.removed = entry.added = 0;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int code = position.pieceAt(from);
+        int color = code / 6;
+        int type = code % 6;
+        int captured = position.pieceAt(to);
+        if (captured != EMPTY) {
+            entry.remove(captured, to);
+        }
+        entry.remove(code, from);
+        if (type == PAWN) {
+            if (captured == EMPTY && (to & 7) != (from & 7)) {
+                int victim = color == WHITE ? to + 8 : to - 8;
+                entry.remove(position.pieceAt(victim), victim);
+            }
+            if ((to >> 3) == 0 || (to >> 3) == 7) {
+                // Position makes a pawn without a promotion piece a queen
+                code = color * 6 + (Move.promotion(move) != 0 ? Move.promotion(move) : QUEEN);
+            }
+        } else if (type == KING) {
+            entry.kingMoved[color] = true;
+            if (Math.abs(to - from) == 2) {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                entry.remove(color * 6 + ROOK, rookFrom);
+                entry.add(color * 6 + ROOK, (from + to) / 2);
+            }
+        }
+        entry.add(code, to);
+    }
+
+    @Override
+    public void unmakeMove() {
+        top--;
+    }
+
+    @Override
+    public int evaluate(Position position) {
+        Entry entry = entries[top];
+        for (int color = WHITE; color <= BLACK; color++) {
+            if (!entry.computed[color]) {
+                update(position, color);
+            }
+        }
+        int us = position.sideToMove();
+        int score = network.propagate(entry.accumulators[us], entry.accumulators[us ^ 1], input, hidden);
+        return Math.max(-MAX_SCORE, Math.min(score, MAX_SCORE));
+    }
+
+    /**
+     * Brings the given side's accumulator of the current ply up to date, from the nearest ply with
+     * a known accumulator, or from scratch if the side's king moved since then or there is none.
+     */
+    private void update(Position position, int perspective) {
+        int known = top;
+        while (!entries[known].computed[perspective]) {
+            if (known == 0 || entries[known].kingMoved[perspective]) {
+                Entry entry = entries[top];
+                network.refresh(position, perspective, entry.accumulators[perspective]);
+                entry.computed[perspective] = true;
+                return;
+            }
+            known--;
+        }
+        // The king has not moved since the known ply, so every feature uses its current square
+        int kingSquare = position.kingSquare(perspective);
+        for (int ply = known + 1; ply <= top; ply++) {
+            Entry entry = entries[ply];
+            short[] accumulator = entry.accumulators[perspective];
+            System.arraycopy(entries[ply - 1].accumulators[perspective], 0, accumulator, 0, accumulator.length);
+            for (int i = 0; i < entry.removed; i++) {
+                if (entry.removedCodes[i] % 6 != KING) {
+                    network.removeFeature(accumulator,
+                            Network.feature(perspective, kingSquare, entry.removedCodes[i], entry.removedSquares[i]));
+                }
+            }
+            for (int i = 0; i < entry.added; i++) {
+                if (entry.addedCodes[i] % 6 != KING) {
+                    network.addFeature(accumulator,
+                            Network.feature(perspective, kingSquare, entry.addedCodes[i], entry.addedSquares[i]));
+                }
+            }
+            entry.computed[perspective] = true;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.web.chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lazy SMP: several Searches run the same position at once and share one TranspositionTable,
+ * each on its own copy of the position. The helpers do not split the tree; they only fill the
+ * table with results the main search then finds. Every other helper starts one depth deeper so
+ * the threads spread over more of the tree.
+ *
+ * The main search runs on the calling thread and its limits decide when the search ends. Its
+ * result is returned, with the node count of every thread. A ParallelSearch runs one search at a
+ * time; its stop signal is shared by all of its threads.
+ */
+public final class ParallelSearch {
+
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final Search[] searches;
+
+    /**
+     * Creates a search over the given number of threads, the calling thread included.
+     */
+    public ParallelSearch(TranspositionTable table, int threads) {
+        this(table, threads, ClassicalEvaluator::new);
+    }
+
+    /**
+     * Creates a search over the given number of threads, each scoring with its own evaluator
+     * from the supplier.
+     */
+    public ParallelSearch(TranspositionTable table, int threads, Supplier<Evaluator> evaluators) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table, stopSignal, evaluators.get());
+        }
+    }
+
+    public int threads() {
+        return searches.length;
+    }
+
+    /**
+     * Stops the main search and all helpers.
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Searches the position within the given limits, with the helpers running on the executor.
+     * The position passed in is not modified.
+     */
+    public SearchResult search(Position root, SearchLimits limits, Executor executor) {
+        return search(root, limits, executor, 1, null);
+    }
+
+    /**
+     * Searches like search(Position, SearchLimits, Executor), with the main search looking for
+     * the given number of best lines and passing them to the listener after every depth, as
+     * Search does. The node counts the listener sees are the main search's own.
+     */
+    public SearchResult search(Position root, SearchLimits limits, Executor executor, int lines,
+                               Consumer<List<SearchResult>> listener) {
+        stopSignal.set(false);
+        // Helpers run until stopped. Node and time budgets only apply to the main search.
+        SearchLimits helperLimits = new SearchLimits(limits.depth(), 0, 0);
+        List<CompletableFuture<SearchResult>> helpers = new ArrayList<>(searches.length - 1);
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            int firstDepth = 1 + (i & 1);
+            helpers.add(CompletableFuture.supplyAsync(() -> helper.search(root, helperLimits, firstDepth), executor));
+        }
+
+        SearchResult result;
+        try {
+            result = searches[0].search(root, limits, lines, listener);
+        } finally {
+            // A helper that has not started yet sees the signal on its first budget check
+            stopSignal.set(true);
+        }
+        long nodes = result.nodes();
+        for (CompletableFuture<SearchResult> helper : helpers) {
+            nodes += helper.join().nodes();
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes, result.timeMillis(), result.pv());
+    }
+}
@@ -0,0 +1,39 @@
+package com.web.chess.engine;
+
+/**
+ * Cache of pawn-structure scores keyed by Position.pawnKey(). Most moves leave the pawns where
+ * they were, so nearly every leaf finds its pawn structure here instead of scoring it again.
+ * Entries are a key and a packed score (see Evaluation.pack) and are simply overwritten on a
+ * collision of slots. A table is not thread-safe; each
+ * ClassicalEvaluator keeps its own.
+ */
+public final class PawnTable {
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+
+    /**
+     * Creates a table with the given number of entries, rounded down to a power of two.
+     */
+    public PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(entries, 1));
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+        // An empty slot reads as key 0 with score 0, which is right for a position without pawns
+    }
+
+    /**
+     * Returns the packed pawn-structure score of the position, scoring and storing it on a miss.
+     */
+    int probe(Position position) {
+        long key = position.pawnKey();
+        int index = (int) key & mask;
+        if (keys[index] != key) {
+            keys[index] = key;
+            scores[index] = Evaluation.pawnStructure(position);
+        }
+        return scores[index];
+    }
+}
@@ -0,0 +1,174 @@
+package com.web.chess.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The counts for well known
+ * positions are published, so any difference from REFERENCES means the move generator is wrong.
+ */
+public final class Perft {
+
+    /**
+     * A test position with its published node counts. nodes[i] is the count at depth i + 1.
+     */
+    public record Reference(String name, String fen, long[] nodes) {
+    }
+
+    /**
+     * The standard perft suite from the Chess Programming Wiki.
+     */
+    public static final List<Reference> REFERENCES = List.of(
+            new Reference("start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    new long[]{20, 400, 8902, 197281, 4865609, 119060324}),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    new long[]{48, 2039, 97862, 4085603, 193690690}),
+            new Reference("position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    new long[]{14, 191, 2812, 43238, 674624, 11030083}),
+            new Reference("position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    new long[]{6, 264, 9467, 422333, 15833292}),
+            new Reference("position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    new long[]{44, 1486, 62379, 2103487, 89941194}),
+            new Reference("position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    new long[]{46, 2079, 89890, 3894594, 164075551}));
+
+    /**
+     * Subtrees at most this deep are counted sequentially by a single task. Deeper ones are split
+     * into one task per move, so there is enough work to steal even when the root has few moves.
+     */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private Perft() {
+    }
+
+    /**
+     * Returns the number of leaf nodes depth plies below the given position. The position is
+     * walked with makeMove/unmakeMove and is left as it was.
+     */
+    public static long perft(Position position, int depth) {
+        return perft(position, depth, buffers(depth));
+    }
+
+    /**
+     * Returns the perft count below each root move, keyed by the move in coordinate notation
+     * (e.g. "e2e4", "e7e8q").
+     */
+    public static Map<String, Long> divide(Position position, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList[] buffers = buffers(depth);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            result.put(Move.toString(move), perft(position, depth - 1, buffers));
+            position.unmakeMove();
+        }
+        return result;
+    }
+
+    /**
+     * Counts the leaf nodes on the given pool. Every task works on its own copy of the position,
+     * so the position passed in is never modified and may be used by the caller meanwhile.
+     */
+    public static long perft(Position position, int depth, ForkJoinPool pool) {
+        return pool.invoke(new Task(new Position(position), depth));
+    }
+
+    /**
+     * Parallel version of divide(Position, int). Root moves are counted on the pool and reported
+     * in generation order, the same as the sequential version.
+     */
+    public static Map<String, Long> divide(Position position, int depth, ForkJoinPool pool) {
+        return pool.invoke(ForkJoinTask.adapt(() -> {
+            List<Task> tasks = children(position, depth);
+            ForkJoinTask.invokeAll(tasks);
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Task task : tasks) {
+                result.put(Move.toString(task.move), task.join());
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * One task per legal move, each on a copy of the position with that move played.
+     */
+    private static List<Task> children(Position position, int depth) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        List<Task> tasks = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            Position child = new Position(position);
+            child.makeMove(moves.get(i));
+            Task task = new Task(child, depth - 1);
+            task.move = moves.get(i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Counts the subtree below its own position, splitting into child tasks while the subtree is
+     * deeper than SEQUENTIAL_DEPTH.
+     */
+    private static final class Task extends RecursiveTask<Long> {
+
+        private final Position position;
+        private final int depth;
+        private int move = Move.NONE;
+
+        Task(Position position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                return perft(position, depth);
+            }
+            List<Task> tasks = children(position, depth);
+            long nodes = 0;
+            for (Task task : ForkJoinTask.invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * One move list per remaining ply, so the whole walk reuses the same buffers.
+     */
+    private static MoveList[] buffers(int depth) {
+        MoveList[] buffers = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new MoveList();
+        }
+        return buffers;
+    }
+
+    private static long perft(Position position, int depth, MoveList[] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = buffers[depth - 1];
+        MoveGenerator.generateLegal(position, moves);
+        if (depth == 1) {
+            // Bulk count the last ply instead of playing each move
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,159 @@
+package com.web.chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A Polyglot (.bin) opening book, memory-mapped read-only. The file is a list of 16-byte
+ * big-endian entries sorted by position key: key (8 bytes), move (2), weight (2) and learn data
+ * (4, ignored). A lookup is a binary search over the mapping, so opening a book costs nothing up
+ * front and the pages a lookup touches are shared through the OS cache by every thread.
+ *
+ * Book moves are matched against the legal moves of the position, so entries that are corrupt
+ * or belong to a colliding key are skipped rather than played.
+ */
+public final class PolyglotBook {
+
+    private static final int ENTRY_BYTES = 16;
+
+    /**
+     * A move of the book and its weight. Weights are relative to the other moves of the same
+     * position.
+     */
+    public record BookMove(int move, int weight) {
+    }
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private PolyglotBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Maps the book file.
+     *
+     * @throws IOException if the file cannot be read, is larger than 2 GB, or is not a whole
+     *                     number of entries
+     */
+    public static PolyglotBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + file + " is " + length + " bytes");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new PolyglotBook(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the book.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the Polyglot key of the position, which is what the book is sorted by.
+     */
+    public static long key(Position position) {
+        return PolyglotKeys.key(position);
+    }
+
+    /**
+     * Returns the legal book moves for the position, heaviest first, or an empty list if the
+     * position is not in the book.
+     */
+    public List<BookMove> moves(Position position) {
+        long key = key(position);
+        List<BookMove> result = new ArrayList<>();
+        MoveList legal = null;
+        for (int i = lowerBound(key); i < size && entries.getLong(i * ENTRY_BYTES) == key; i++) {
+            int weight = entries.getShort(i * ENTRY_BYTES + 10) & 0xFFFF;
+            if (legal == null) {
+                legal = new MoveList();
+                MoveGenerator.generateLegal(position, legal);
+            }
+            int move = toMove(position, legal, entries.getShort(i * ENTRY_BYTES + 8) & 0xFFFF);
+            if (move != Move.NONE) {
+                result.add(new BookMove(move, weight));
+            }
+        }
+        result.sort((a, b) -> Integer.compare(b.weight(), a.weight()));
+        return result;
+    }
+
+    /**
+     * Picks a book move at random in proportion to the weights, or returns Move.NONE if the
+     * position is not in the book or all of its moves have weight 0.
+     */
+    public int pick(Position position, RandomGenerator random) {
+        List<BookMove> moves = moves(position);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int target = random.nextInt(total);
+        for (BookMove move : moves) {
+            target -= move.weight();
+            if (target < 0) {
+                return move.move();
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Returns the index of the first entry whose key is not below the given one, comparing the
+     * keys as unsigned like Polyglot does.
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(mid * ENTRY_BYTES), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Translates a Polyglot move to the matching legal move, or Move.NONE. Polyglot moves are
+     * to file (3 bits), to rank, from file, from rank and promotion piece, with rank 0 being rank 1.
+     * Castling is written as the king taking its own rook.
+     */
+    private static int toMove(Position position, MoveList legal, int bookMove) {
+        int to = (7 - ((bookMove >>> 3) & 7)) * 8 + (bookMove & 7);
+        int from = (7 - ((bookMove >>> 9) & 7)) * 8 + ((bookMove >>> 6) & 7);
+        int promotion = (bookMove >>> 12) & 7;
+        int piece = position.pieceAt(from);
+        if (piece != Position.EMPTY && piece % 6 == Position.KING && position.pieceAt(to) == piece - 2) {
+            // King onto its own rook: the castle, which this engine encodes as the king's move
+            to = to > from ? from + 2 : from - 2;
+        }
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
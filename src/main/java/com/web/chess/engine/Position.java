@@ -0,0 +1,674 @@
+package com.web.chess.engine;
+
+import static com.web.chess.engine.Bitboards.*;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position. Holds one bitboard per piece type and color, the
+ * occupancy of each side, a square-to-piece lookup, and the remaining FEN state (side to move,
+ * castling rights, en passant square and move clocks).
+ *
+ * Piece codes are color * 6 + type, with EMPTY for a vacant square.
+ *
+ * Every position also carries a Zobrist key that is kept up to date by makeMove(), so two
+ * positions with the same pieces, side to move, castling rights and capturable en passant file
+ * have the same key.
+ *
+ * The squares each side attacks and the pieces pinned to each king are cached. Sliding piece
+ * attacks are stored per square and makeMove()/unmakeMove() only recompute the sliders whose
+ * rays reach a square the move changed, so check and pin detection never rescan the board.
+ */
+public final class Position {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int EMPTY = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int INITIAL_UNDO_CAPACITY = 16;
+
+    /**
+     * Castling rights that survive a move touching each square. Moving a king or rook off its
+     * home square, or capturing a rook on its home square, clears the matching rights.
+     */
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            CASTLE_MASK[sq] = 15;
+        }
+        CASTLE_MASK[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLE_MASK[63] &= ~WHITE_KINGSIDE;
+        CASTLE_MASK[56] &= ~WHITE_QUEENSIDE;
+        CASTLE_MASK[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLE_MASK[7] &= ~BLACK_KINGSIDE;
+        CASTLE_MASK[0] &= ~BLACK_QUEENSIDE;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final byte[] mailbox = new byte[64];
+
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare = NO_SQUARE;
+    private int halfmoves;
+    private int fullmoves = 1;
+    private long key;
+
+    /**
+     * Evaluation terms kept up to date by put() and remove(), so the evaluation never scans the
+     * board: the middlegame and endgame material and piece-square totals (white minus black, see
+     * Evaluation), the game phase, and the Zobrist key of the pawns alone for the PawnTable.
+     */
+    private int middlegame;
+    private int endgame;
+    private int phase;
+    private long pawnKey;
+
+    /**
+     * Attack set of the bishop, rook or queen on each square. Entries for squares without a
+     * slider are left stale and ignored.
+     */
+    private final long[] sliderAttacks = new long[64];
+
+    /**
+     * Squares attacked by each color and pieces pinned to each king, rebuilt on demand when the
+     * matching bit of staleAttacks or stalePins is set.
+     */
+    private final long[] sideAttacks = new long[2];
+    private final long[] pinnedPieces = new long[2];
+    private int staleAttacks = 3;
+    private int stalePins = 3;
+
+    /**
+     * Undo stack for unmakeMove(). Preallocated so that making and unmaking moves in a search
+     * does not allocate; see pushUndo() for the layout.
+     */
+    private long[] undoStates = new long[INITIAL_UNDO_CAPACITY];
+    private long[] undoKeys = new long[INITIAL_UNDO_CAPACITY];
+    private int undoCount;
+
+    /**
+     * Creates an empty position with white to move.
+     */
+    public Position() {
+        Arrays.fill(mailbox, (byte) EMPTY);
+    }
+
+    /**
+     * Creates an independent copy of another position.
+     */
+    public Position(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        System.arraycopy(other.colors, 0, colors, 0, 2);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoves = other.halfmoves;
+        fullmoves = other.fullmoves;
+        key = other.key;
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+        pawnKey = other.pawnKey;
+        System.arraycopy(other.sliderAttacks, 0, sliderAttacks, 0, 64);
+        System.arraycopy(other.sideAttacks, 0, sideAttacks, 0, 2);
+        System.arraycopy(other.pinnedPieces, 0, pinnedPieces, 0, 2);
+        staleAttacks = other.staleAttacks;
+        stalePins = other.stalePins;
+        undoStates = other.undoStates.clone();
+        undoKeys = other.undoKeys.clone();
+        undoCount = other.undoCount;
+    }
+
+    /**
+     * Builds a position from a FEN string, see Fen.parse().
+     *
+     * @throws FenException if the FEN is malformed or describes an impossible position
+     */
+    public static Position fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * Returns this position as a FEN string.
+     */
+    public String toFen() {
+        return Fen.toFen(this);
+    }
+
+    /**
+     * Returns the piece code for a FEN piece letter, or EMPTY if the letter is not a piece.
+     */
+    public static int codeOf(char c) {
+        int color = Character.isUpperCase(c) ? WHITE : BLACK;
+        int type;
+        switch (Character.toLowerCase(c)) {
+            case 'p': type = PAWN; break;
+            case 'n': type = KNIGHT; break;
+            case 'b': type = BISHOP; break;
+            case 'r': type = ROOK; break;
+            case 'q': type = QUEEN; break;
+            case 'k': type = KING; break;
+            default: return EMPTY;
+        }
+        return color * 6 + type;
+    }
+
+    private int validCastlingRights() {
+        int valid = 0;
+        if (mailbox[60] == WHITE * 6 + KING) {
+            if (mailbox[63] == WHITE * 6 + ROOK) {
+                valid |= WHITE_KINGSIDE;
+            }
+            if (mailbox[56] == WHITE * 6 + ROOK) {
+                valid |= WHITE_QUEENSIDE;
+            }
+        }
+        if (mailbox[4] == BLACK * 6 + KING) {
+            if (mailbox[7] == BLACK * 6 + ROOK) {
+                valid |= BLACK_KINGSIDE;
+            }
+            if (mailbox[0] == BLACK * 6 + ROOK) {
+                valid |= BLACK_QUEENSIDE;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Empties the board and resets the rest of the state to that of a new Position, so Fen can
+     * load positions into one instance without allocating.
+     */
+    void clear() {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        occupied = 0;
+        Arrays.fill(mailbox, (byte) EMPTY);
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoves = 0;
+        fullmoves = 1;
+        key = 0;
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+        pawnKey = 0;
+        staleAttacks = 3;
+        stalePins = 3;
+        undoCount = 0;
+    }
+
+    /**
+     * Sets the non-placement FEN state once the pieces are in place, and rebuilds the key and
+     * attacks. Castling rights whose king or rook is not on its home square are dropped.
+     */
+    void setState(int sideToMove, int castlingRights, int epSquare, int halfmoves, int fullmoves) {
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights & validCastlingRights();
+        this.epSquare = epSquare;
+        this.halfmoves = halfmoves;
+        this.fullmoves = fullmoves;
+        // put() already added the pieces to the key
+        if (sideToMove == BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        key ^= Zobrist.CASTLING[this.castlingRights] ^ epKey();
+        updateAttacks(occupied);
+    }
+
+    void put(int sq, int code) {
+        long bit = 1L << sq;
+        pieces[code] |= bit;
+        colors[code / 6] |= bit;
+        occupied |= bit;
+        mailbox[sq] = (byte) code;
+        key ^= Zobrist.PIECES[code][sq];
+        middlegame += Evaluation.MIDDLEGAME[code][sq];
+        endgame += Evaluation.ENDGAME[code][sq];
+        phase += Evaluation.PHASE[code % 6];
+        if (code % 6 == PAWN) {
+            pawnKey ^= Zobrist.PIECES[code][sq];
+        }
+    }
+
+    private void remove(int sq) {
+        int code = mailbox[sq];
+        long bit = 1L << sq;
+        pieces[code] &= ~bit;
+        colors[code / 6] &= ~bit;
+        occupied &= ~bit;
+        mailbox[sq] = EMPTY;
+        key ^= Zobrist.PIECES[code][sq];
+        middlegame -= Evaluation.MIDDLEGAME[code][sq];
+        endgame -= Evaluation.ENDGAME[code][sq];
+        phase -= Evaluation.PHASE[code % 6];
+        if (code % 6 == PAWN) {
+            pawnKey ^= Zobrist.PIECES[code][sq];
+        }
+    }
+
+    /**
+     * Plays a move on this position. Castling is given as the king moving two squares, and
+     * promotion is the piece type a pawn reaching the last rank becomes. The move is assumed to be
+     * legal.
+     */
+    public void makeMove(int from, int to, int promotion) {
+        boolean promotes = mailbox[from] % 6 == PAWN && ((to >> 3) == 0 || (to >> 3) == 7);
+        makeMove(Move.encode(from, to, 0, promotes ? promotion : 0));
+    }
+
+    /**
+     * Plays a packed move (see Move) on this position and records what is needed to take it back
+     * with unmakeMove(). A pawn reaching the last rank without a promotion piece becomes a queen.
+     * The move is assumed to be legal.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int code = mailbox[from];
+        int color = code / 6;
+        int type = code % 6;
+        int captured = mailbox[to];
+        if (type == PAWN && ((to >> 3) == 0 || (to >> 3) == 7) && Move.promotion(move) == 0) {
+            move |= Move.encode(0, 0, 0, QUEEN);
+        }
+        pushUndo(move, captured);
+
+        int previousEp = epSquare;
+        long changed = (1L << from) | (1L << to);
+        // Take the old castling and en passant state out of the key, then add the new state back
+        // once the move is on the board
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey();
+        epSquare = NO_SQUARE;
+
+        if (captured != EMPTY) {
+            remove(to);
+        }
+        remove(from);
+        if (type == PAWN) {
+            if (to == previousEp && (to & 7) != (from & 7)) {
+                // En passant removes the pawn beside the origin square
+                int victim = color == WHITE ? to + 8 : to - 8;
+                remove(victim);
+                changed |= 1L << victim;
+            }
+            if (Math.abs(to - from) == 16) {
+                epSquare = (from + to) / 2;
+            }
+            if (Move.promotion(move) != 0) {
+                code = color * 6 + Move.promotion(move);
+            }
+        } else if (type == KING && Math.abs(to - from) == 2) {
+            // Castling also moves the rook to the square the king passed over
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            remove(rookFrom);
+            put(rookTo, color * 6 + ROOK);
+            changed |= (1L << rookFrom) | (1L << rookTo);
+        }
+        put(to, code);
+        updateAttacks(changed);
+
+        castlingRights &= CASTLE_MASK[from] & CASTLE_MASK[to];
+        halfmoves = (type == PAWN || captured != EMPTY) ? 0 : halfmoves + 1;
+        if (color == BLACK) {
+            fullmoves++;
+        }
+        sideToMove ^= 1;
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey() ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Takes back the last move played with makeMove(), restoring the position exactly, including
+     * castling rights, the en passant square, the halfmove clock and the key.
+     */
+    public void unmakeMove() {
+        undoCount--;
+        long state = undoStates[undoCount];
+        int move = (int) (state & 0xFFFFF);
+        int captured = (int) ((state >>> 20) & 0xF);
+        castlingRights = (int) ((state >>> 24) & 0xF);
+        epSquare = (int) ((state >>> 28) & 0x7F) - 1;
+        halfmoves = (int) (state >>> 36);
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int code = mailbox[to];
+        int color = code / 6;
+        long changed = (1L << from) | (1L << to);
+        remove(to);
+        if (Move.promotion(move) != 0) {
+            code = color * 6 + PAWN;
+        }
+        put(from, code);
+        if (captured != 15) {
+            put(to, captured);
+        } else if (code % 6 == PAWN && (to & 7) != (from & 7)) {
+            int victim = color == WHITE ? to + 8 : to - 8;
+            put(victim, (color ^ 1) * 6 + PAWN);
+            changed |= 1L << victim;
+        } else if (code % 6 == KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            remove(rookTo);
+            put(rookFrom, color * 6 + ROOK);
+            changed |= (1L << rookFrom) | (1L << rookTo);
+        }
+        updateAttacks(changed);
+        if (color == BLACK) {
+            fullmoves--;
+        }
+        sideToMove = color;
+        key = undoKeys[undoCount];
+    }
+
+    /**
+     * Records the state makeMove() is about to overwrite. Everything except the key is packed into
+     * one long: the move (20 bits), the captured piece code (4 bits, 15 for none), castling rights
+     * (4 bits), en passant square + 1 (8 bits) and the halfmove clock.
+     */
+    private void pushUndo(int move, int captured) {
+        if (undoCount == undoStates.length) {
+            // Only a game longer than the stack, or a search on top of one, gets here
+            undoStates = Arrays.copyOf(undoStates, undoCount * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoCount * 2);
+        }
+        undoStates[undoCount] = (move & 0xFFFFFL)
+                | (long) (captured & 0xF) << 20
+                | (long) castlingRights << 24
+                | (long) (epSquare + 1) << 28
+                | (long) halfmoves << 36;
+        undoKeys[undoCount] = key;
+        undoCount++;
+    }
+
+    /**
+     * Returns whether the current position already occurred since the last capture or pawn move.
+     * Only positions with the same side to move are compared, and only as far back as the undo
+     * stack goes.
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, undoCount - halfmoves);
+        for (int i = undoCount - 2; i >= oldest; i -= 2) {
+            if (undoKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of moves that can currently be taken back.
+     */
+    public int undoCount() {
+        return undoCount;
+    }
+
+    /**
+     * Brings the cached attacks up to date after the pieces on the changed squares were added,
+     * removed or replaced. A slider's attacks can only change if it stands on a changed square or
+     * its rays reached one before the move, since the first blocker on every other ray is the
+     * same. The same test works in both directions, so unmakeMove() uses it too.
+     */
+    private void updateAttacks(long changed) {
+        long sliders = pieces[BISHOP] | pieces[ROOK] | pieces[QUEEN]
+                | pieces[6 + BISHOP] | pieces[6 + ROOK] | pieces[6 + QUEEN];
+        long stale = sliders & changed;
+        long others = sliders & ~changed;
+        while (others != 0) {
+            int sq = Long.numberOfTrailingZeros(others);
+            others &= others - 1;
+            if ((sliderAttacks[sq] & changed) != 0) {
+                stale |= 1L << sq;
+            }
+        }
+        while (stale != 0) {
+            int sq = Long.numberOfTrailingZeros(stale);
+            stale &= stale - 1;
+            switch (mailbox[sq] % 6) {
+                case BISHOP:
+                    sliderAttacks[sq] = bishopAttacks(sq, occupied);
+                    break;
+                case ROOK:
+                    sliderAttacks[sq] = rookAttacks(sq, occupied);
+                    break;
+                default:
+                    sliderAttacks[sq] = queenAttacks(sq, occupied);
+                    break;
+            }
+        }
+        staleAttacks = 3;
+        // Pins only change when the move touches one of the eight lines out of a king
+        for (int color = WHITE; color <= BLACK; color++) {
+            int king = kingSquare(color);
+            if (king == NO_SQUARE || (changed & (queenAttacks(king, 0) | (1L << king))) != 0) {
+                stalePins |= 1 << color;
+            }
+        }
+    }
+
+    /**
+     * Returns the en passant part of the key. The file only counts when a pawn of the side to
+     * move could capture there, so positions that differ in an unusable en passant square match.
+     */
+    private long epKey() {
+        if (epSquare == NO_SQUARE
+                || (PAWN_ATTACKS[sideToMove ^ 1][epSquare] & pieces[sideToMove * 6 + PAWN]) == 0) {
+            return 0;
+        }
+        return Zobrist.EN_PASSANT[epSquare & 7];
+    }
+
+    /**
+     * Computes the Zobrist key from scratch. makeMove() keeps key() equal to this.
+     */
+    public long computeKey() {
+        long result = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != EMPTY) {
+                result ^= Zobrist.PIECES[mailbox[sq]][sq];
+            }
+        }
+        if (sideToMove == BLACK) {
+            result ^= Zobrist.BLACK_TO_MOVE;
+        }
+        return result ^ Zobrist.CASTLING[castlingRights] ^ epKey();
+    }
+
+    /**
+     * Returns the pieces of the given color that attack a square, using the given occupancy for
+     * sliding pieces.
+     */
+    public long attackersTo(int sq, int byColor, long occupancy) {
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+        return (PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN])
+                | (KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT])
+                | (KING_ATTACKS[sq] & pieces[base + KING])
+                | (bishopAttacks(sq, occupancy) & (pieces[base + BISHOP] | queens))
+                | (rookAttacks(sq, occupancy) & (pieces[base + ROOK] | queens));
+    }
+
+    /**
+     * Returns every square attacked by a piece of the given color, including squares holding that
+     * color's own pieces. Sliders stop at the first piece in each direction, kings included.
+     */
+    public long attacks(int color) {
+        if ((staleAttacks & (1 << color)) != 0) {
+            sideAttacks[color] = computeAttacks(color);
+            staleAttacks &= ~(1 << color);
+        }
+        return sideAttacks[color];
+    }
+
+    private long computeAttacks(int color) {
+        int base = color * 6;
+        long pawns = pieces[base + PAWN];
+        long result = color == WHITE
+                ? ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A)
+                : ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+        long knights = pieces[base + KNIGHT];
+        while (knights != 0) {
+            result |= KNIGHT_ATTACKS[Long.numberOfTrailingZeros(knights)];
+            knights &= knights - 1;
+        }
+        long sliders = pieces[base + BISHOP] | pieces[base + ROOK] | pieces[base + QUEEN];
+        while (sliders != 0) {
+            result |= sliderAttacks[Long.numberOfTrailingZeros(sliders)];
+            sliders &= sliders - 1;
+        }
+        int king = kingSquare(color);
+        return king == NO_SQUARE ? result : result | KING_ATTACKS[king];
+    }
+
+    /**
+     * Returns whether a square is attacked by any piece of the given color.
+     */
+    public boolean isAttacked(int sq, int byColor) {
+        return (attacks(byColor) & (1L << sq)) != 0;
+    }
+
+    /**
+     * Returns the enemy pieces giving check to the king of the given color, or 0 if that color has
+     * no king on the board.
+     */
+    public long checkers(int color) {
+        int king = kingSquare(color);
+        if (king == NO_SQUARE || !isAttacked(king, color ^ 1)) {
+            return 0;
+        }
+        return attackersTo(king, color ^ 1, occupied);
+    }
+
+    /**
+     * Returns the pieces of the given color that are absolutely pinned to their own king.
+     */
+    public long pinned(int color) {
+        if ((stalePins & (1 << color)) != 0) {
+            pinnedPieces[color] = computePinned(color);
+            stalePins &= ~(1 << color);
+        }
+        return pinnedPieces[color];
+    }
+
+    private long computePinned(int color) {
+        int king = kingSquare(color);
+        if (king == NO_SQUARE) {
+            return 0;
+        }
+        int base = (color ^ 1) * 6;
+        long queens = pieces[base + QUEEN];
+        long snipers = (rookAttacks(king, 0) & (pieces[base + ROOK] | queens))
+                | (bishopAttacks(king, 0) & (pieces[base + BISHOP] | queens));
+        long result = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = between(king, sniper) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                result |= blockers & colors[color];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the square of the given color's king, or NO_SQUARE if it has none.
+     */
+    public int kingSquare(int color) {
+        long king = pieces[color * 6 + KING];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the Zobrist key of this position.
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Returns the middlegame material and piece-square total, white minus black.
+     */
+    public int middlegame() {
+        return middlegame;
+    }
+
+    /**
+     * Returns the endgame material and piece-square total, white minus black.
+     */
+    public int endgame() {
+        return endgame;
+    }
+
+    /**
+     * Returns the game phase, Evaluation.MAX_PHASE with all pieces on the board and 0 with only
+     * kings and pawns. Promotions can take it past the maximum.
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * Returns the Zobrist key of the pawns alone.
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    public int pieceAt(int sq) {
+        return mailbox[sq];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+
+    public long colorOccupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public int halfmoves() {
+        return halfmoves;
+    }
+
+    public int fullmoves() {
+        return fullmoves;
+    }
+}
@@ -0,0 +1,42 @@
+package com.web.chess.engine;
+
+/**
+ * Kernels in plain Java, for JVMs without the Vector API module.
+ */
+final class ScalarKernels implements Kernels {
+
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void clip(short[] accumulator, int max, int[] output, int outputOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = Math.max(0, Math.min(accumulator[i], max));
+        }
+    }
+
+    @Override
+    public int dot(int[] input, int[] weights, int weightOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += input[i] * weights[weightOffset + i];
+        }
+        return sum;
+    }
+}
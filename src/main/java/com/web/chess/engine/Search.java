@@ -0,0 +1,490 @@
+package com.web.chess.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Iterative-deepening alpha-beta search with a quiescence search on captures and a shared
+ * TranspositionTable. Leaves are scored by an Evaluator, the ClassicalEvaluator unless another
+ * is given. A Search reuses its move buffers and evaluator between calls, so keep one per thread;
+ * it works on its own copy of the position it is given.
+ *
+ * Scores are in centipawns from the side to move's point of view. Mate scores are MATE minus the
+ * number of plies to the mate, and are stored in the table relative to the node they were found
+ * at so they stay correct when the same position is reached at another ply.
+ */
+public final class Search {
+
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 64;
+
+    /**
+     * Score of a position the bitbases say is won, less the ply it is reached at. Below the mate
+     * scores, so a real mate is still preferred.
+     */
+    public static final int KNOWN_WIN = 20000;
+
+    /**
+     * Scores beyond this are mates.
+     */
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+
+    /**
+     * How often, in nodes, the node and time budgets are checked.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * History scores are halved when one passes this, and at the start of every search, so
+     * recent cutoffs count most.
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final TranspositionTable table;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+    private final MoveList rootMoves = new MoveList();
+    private final Evaluator evaluator;
+
+    /**
+     * Quiet move ordering (see MovePicker): the last two quiet moves that caused a cutoff at each
+     * ply, and for each piece and destination square how often its quiet moves caused cutoffs,
+     * weighted by the square of the remaining depth.
+     */
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+
+    /**
+     * Triangular principal variation table: pv[ply] holds the best line found from ply onwards,
+     * pvLength[ply] moves long.
+     */
+    private final int[][] pv = new int[MAX_PLY + 2][MAX_PLY + 2];
+    private final int[] pvLength = new int[MAX_PLY + 2];
+    private int[] rootPv = new int[0];
+
+    /**
+     * Root moves left out of the current search, the best moves of the lines already found at
+     * this depth when searching several lines.
+     */
+    private final int[] excluded = new int[MoveList.CAPACITY];
+    private int excludedCount;
+
+    private Position position;
+    private int rootMove;
+    private int rootScore;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+
+    /**
+     * The bitbase result of the root, or Bitbases.UNKNOWN. Positions inside the search are only
+     * probed when the root is not covered; when it is, the root moves that give up a win are
+     * skipped and the rest is searched normally so the engine makes progress towards mate.
+     */
+    private int rootResult;
+
+    /**
+     * Set to stop the search. Searches that share a signal (see ParallelSearch) all stop
+     * together, and a shared signal is never cleared by the search itself.
+     */
+    private final AtomicBoolean stopSignal;
+    private final boolean ownsSignal;
+
+    public Search(TranspositionTable table) {
+        this(table, new ClassicalEvaluator());
+    }
+
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this(table, new AtomicBoolean(), true, evaluator);
+    }
+
+    /**
+     * Creates a search that stops when the given signal is set.
+     */
+    public Search(TranspositionTable table, AtomicBoolean stopSignal) {
+        this(table, stopSignal, new ClassicalEvaluator());
+    }
+
+    public Search(TranspositionTable table, AtomicBoolean stopSignal, Evaluator evaluator) {
+        this(table, stopSignal, false, evaluator);
+    }
+
+    private Search(TranspositionTable table, AtomicBoolean stopSignal, boolean ownsSignal, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+        this.stopSignal = stopSignal;
+        this.ownsSignal = ownsSignal;
+        for (int i = 0; i < pickers.length; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It returns the best move of the last
+     * completed iteration.
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Searches the position within the given limits and returns the best move found. The position
+     * passed in is not modified.
+     */
+    public SearchResult search(Position root, SearchLimits limits) {
+        table.newSearch();
+        return search(root, limits, 1);
+    }
+
+    /**
+     * Searches like search(Position, SearchLimits), but starts iterative deepening at firstDepth
+     * and does not start a new table generation. Lazy SMP helpers start at different depths so
+     * that they do not all search the same tree.
+     */
+    public SearchResult search(Position root, SearchLimits limits, int firstDepth) {
+        return search(root, limits, firstDepth, 1, null);
+    }
+
+    /**
+     * Searches like search(Position, SearchLimits), but finds the best lines with up to the given
+     * number of different first moves (multi-PV). After each completed depth the lines, best
+     * first, are passed to the listener, if there is one. Each further line is a search of the
+     * root without the first moves of the lines before it, so every line costs about as much as
+     * the first. The best line is returned.
+     */
+    public SearchResult search(Position root, SearchLimits limits, int lines,
+                               Consumer<List<SearchResult>> listener) {
+        table.newSearch();
+        return search(root, limits, 1, Math.max(lines, 1), listener);
+    }
+
+    private SearchResult search(Position root, SearchLimits limits, int firstDepth, int lines,
+                                Consumer<List<SearchResult>> listener) {
+        long start = System.currentTimeMillis();
+        position = new Position(root);
+        evaluator.reset(position);
+        nodes = 0;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        deadline = limits.timeMillis() > 0 ? start + limits.timeMillis() : Long.MAX_VALUE;
+        stopped = false;
+        rootResult = Bitbases.covers(position) ? Bitbases.probe(position) : Bitbases.UNKNOWN;
+        if (ownsSignal) {
+            stopSignal.set(false);
+        }
+
+        int maxDepth = Math.min(Math.max(limits.depth(), 1), MAX_PLY);
+        rootMove = Move.NONE;
+        rootPv = new int[0];
+        excludedCount = 0;
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        ageHistory();
+        List<SearchResult> previous = List.of();
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+        for (int depth = Math.min(Math.max(firstDepth, 1), maxDepth); depth <= maxDepth; depth++) {
+            List<SearchResult> found = new ArrayList<>(lines);
+            for (int line = 0; line < lines; line++) {
+                if (line > 0) {
+                    // Start from this line's move of the last depth, unless a better line took it
+                    int lastMove = line < previous.size() ? previous.get(line).move() : Move.NONE;
+                    rootMove = isExcluded(lastMove) ? Move.NONE : lastMove;
+                }
+                alphaBeta(depth, -INFINITY, INFINITY, 0);
+                if (line == 0 && rootMove != Move.NONE) {
+                    // The previous best move is searched first, so even a partial iteration's
+                    // best move has been compared against it. The root move is kept here rather
+                    // than read back from the table, which other searches may have overwritten.
+                    bestMove = rootMove;
+                    bestScore = rootScore;
+                }
+                if (stopped || rootMove == Move.NONE) {
+                    break;
+                }
+                found.add(new SearchResult(rootMove, rootScore, depth, nodes,
+                        System.currentTimeMillis() - start, extendPv(rootPv)));
+                excluded[excludedCount++] = rootMove;
+            }
+            excludedCount = 0;
+            if (stopped) {
+                break;
+            }
+            completed = depth;
+            previous = found;
+            if (listener != null) {
+                listener.accept(found);
+            }
+            // The next depth starts from the best line
+            if (!found.isEmpty()) {
+                rootMove = bestMove;
+                rootScore = bestScore;
+                rootPv = found.get(0).pv();
+            }
+            if (Math.abs(bestScore) >= MATE_BOUND) {
+                // A shorter mate cannot be found by searching deeper
+                break;
+            }
+        }
+        if (bestMove == Move.NONE) {
+            // Out of budget before depth 1 finished, fall back to any legal move
+            MoveGenerator.generateLegal(position, rootMoves);
+            if (!rootMoves.isEmpty()) {
+                bestMove = rootMoves.get(0);
+                rootPv = new int[]{bestMove};
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completed, nodes, System.currentTimeMillis() - start,
+                extendPv(rootPv));
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excluded[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lengthens a line cut short by a table cutoff with the table's moves for the positions that
+     * follow it, as long as they are legal and do not repeat a position.
+     */
+    private int[] extendPv(int[] line) {
+        int length = line.length;
+        int[] extended = Arrays.copyOf(line, MAX_PLY);
+        for (int i = 0; i < length; i++) {
+            position.makeMove(line[i]);
+        }
+        while (length < MAX_PLY && !position.isRepetition()) {
+            int move = TranspositionTable.move(table.probe(position.key()));
+            if (!MoveGenerator.isLegal(position, move)) {
+                break;
+            }
+            extended[length++] = move;
+            position.makeMove(move);
+        }
+        for (int i = 0; i < length; i++) {
+            position.unmakeMove();
+        }
+        return Arrays.copyOf(extended, length);
+    }
+
+    /**
+     * Plays a move inside the tree, keeping the evaluator in step with the position.
+     */
+    private void play(int move) {
+        evaluator.makeMove(position, move);
+        position.makeMove(move);
+    }
+
+    private void takeBack() {
+        position.unmakeMove();
+        evaluator.unmakeMove();
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (ply > 0 && (position.halfmoves() >= 100 || position.isRepetition())) {
+            return 0;
+        }
+        boolean inCheck = position.checkers(position.sideToMove()) != 0;
+        if (inCheck && ply < MAX_PLY) {
+            // Check extension, so forced sequences are not cut off at the horizon
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (countNode() || ply >= MAX_PLY) {
+            return evaluator.evaluate(position);
+        }
+
+        long key = position.key();
+        long entry = table.probe(key);
+        int hashMove = ply == 0 && rootMove != Move.NONE ? rootMove : TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        if (!MoveGenerator.hasLegalMove(position, position.sideToMove())) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (ply > 0 && rootResult == Bitbases.UNKNOWN && Long.bitCount(position.occupied()) <= 3) {
+            int result = Bitbases.probe(position);
+            if (result != Bitbases.UNKNOWN) {
+                return result * (KNOWN_WIN - ply);
+            }
+        }
+        MovePicker picker = pickers[ply];
+        picker.init(position, hashMove, killers[ply][0], killers[ply][1], history);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            if (ply == 0 && excludedCount > 0 && isExcluded(move)) {
+                continue;
+            }
+            play(move);
+            if (ply == 0 && rootResult == Bitbases.WIN && Bitbases.probe(position) != Bitbases.LOSS) {
+                takeBack();
+                continue;
+            }
+            int score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+            takeBack();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    updatePv(ply, move);
+                }
+                if (ply == 0) {
+                    rootMove = move;
+                    rootScore = score;
+                    rootPv = Arrays.copyOf(pv[0], pvLength[0]);
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        if (!Move.isCapture(move) && Move.promotion(move) == 0) {
+                            rememberCutoff(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        if (ply > 0 || excludedCount == 0) {
+            // A root searched without some of its moves must not replace the real result
+            table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions only, until the position is quiet. The side to move may
+     * also stand pat on the static evaluation, except in check, where every evasion is searched.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (countNode() || ply >= MAX_PLY) {
+            return evaluator.evaluate(position);
+        }
+        boolean inCheck = position.checkers(position.sideToMove()) != 0;
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = evaluator.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        MovePicker picker = pickers[ply];
+        picker.initNoisy(position, history);
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            play(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            takeBack();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    updatePv(ply, move);
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        // Without a move in check it is mate; otherwise bestScore is at least the static score
+        return bestScore == -INFINITY ? -MATE + ply : bestScore;
+    }
+
+    /**
+     * Records a quiet move that caused a beta cutoff as a killer of its ply and in the history
+     * table.
+     */
+    private void rememberCutoff(int move, int depth, int ply) {
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[] scores = history[position.pieceAt(Move.from(move))];
+        scores[Move.to(move)] += depth * depth;
+        if (scores[Move.to(move)] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    private void ageHistory() {
+        for (int[] scores : history) {
+            for (int sq = 0; sq < 64; sq++) {
+                scores[sq] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Makes move followed by the child's line the best line at this ply.
+     */
+    private void updatePv(int ply, int move) {
+        int childLength = ply + 1 < pv.length ? pvLength[ply + 1] : 0;
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, Math.min(childLength, pv[ply].length - 1));
+        pvLength[ply] = Math.min(childLength + 1, pv[ply].length);
+    }
+
+    /**
+     * Counts a node and returns whether the search is out of budget.
+     */
+    private boolean countNode() {
+        nodes++;
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0 && !stopped) {
+            stopped = stopSignal.get() || nodes >= nodeLimit || System.currentTimeMillis() >= deadline;
+        }
+        return stopped;
+    }
+
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+}
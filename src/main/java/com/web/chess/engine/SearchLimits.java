@@ -0,0 +1,15 @@
+package com.web.chess.engine;
+
+/**
+ * How much work a search may do. A search stops at whichever limit it reaches first; 0 means no
+ * limit for nodes and time. The depth is always capped at Search.MAX_PLY.
+ */
+public record SearchLimits(int depth, long nodes, long timeMillis) {
+
+    /**
+     * Searches to the given depth with no node or time limit.
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+}
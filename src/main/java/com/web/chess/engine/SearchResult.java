@@ -0,0 +1,29 @@
+package com.web.chess.engine;
+
+/**
+ * The outcome of a search: the best move found (Move.NONE if the side to move has no legal
+ * move), its score in centipawns for the side to move, the last depth that was completed, the
+ * number of nodes visited and the principal variation, the expected line starting with the best
+ * move. The variation is empty when there is no best move.
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long timeMillis, int[] pv) {
+
+    /**
+     * Returns whether the score is a forced mate for either side.
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * Returns the number of moves to mate, negative when the side to move is being mated, or 0
+     * if the score is not a mate.
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+}
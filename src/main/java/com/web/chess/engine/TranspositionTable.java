@@ -0,0 +1,168 @@
+package com.web.chess.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-size hash table of search results keyed by Zobrist key, stored off-heap in direct
+ * buffers so that even multi-gigabyte tables add nothing for the garbage collector to trace or
+ * copy. Direct buffers count against -XX:MaxDirectMemorySize, which defaults to the heap size.
+ *
+ * The table is an array of 64-byte buckets of four entries, so a probe reads one cache line. Each
+ * entry is two longs: the key XORed with the data, and the data. A reader only accepts an entry
+ * whose two halves XOR back to its key, so entries torn by concurrent writers are treated as
+ * misses and the table can be shared between searches on different threads without locking.
+ *
+ * Data layout: move (20 bits), score (16 bits, signed), depth (8 bits), bound (2 bits), age (6
+ * bits). A stored entry always has a non-zero bound, so 0 means "no entry". The age is the
+ * table's generation when the entry was stored; newSearch() starts a new generation, so results
+ * left over from earlier searches are replaced first.
+ */
+public final class TranspositionTable {
+
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+    /**
+     * Buckets per buffer. A direct buffer is indexed by int, so large tables are split into
+     * buffers of 1 GB.
+     */
+    private static final int CHUNK_BITS = 24;
+    private static final int AGE_MASK = 63;
+
+    private final ByteBuffer[] chunks;
+    private final long mask;
+    private volatile int generation;
+
+    /**
+     * Creates a table using at most the given number of megabytes, rounded down to a power of two
+     * buckets of 64 bytes each.
+     */
+    public TranspositionTable(int megabytes) {
+        long count = Math.max(1, (long) megabytes * 1024 * 1024 / BUCKET_BYTES);
+        long bucketCount = Long.highestOneBit(Math.min(count, 1L << 40));
+        int chunkBuckets = (int) Math.min(bucketCount, 1L << CHUNK_BITS);
+        chunks = new ByteBuffer[(int) (bucketCount / chunkBuckets)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkBuckets * BUCKET_BYTES).order(ByteOrder.nativeOrder());
+        }
+        mask = bucketCount - 1;
+    }
+
+    /**
+     * Starts a new generation. Called once per search, so entries from earlier searches lose
+     * against fresh ones when a bucket is full.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & AGE_MASK;
+    }
+
+    /**
+     * Returns the data stored for the key, or 0 if there is none.
+     */
+    public long probe(long key) {
+        long bucket = key & mask;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BITS)];
+        int base = (int) (bucket & ((1 << CHUNK_BITS) - 1)) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int index = base + i * ENTRY_BYTES;
+            long data = chunk.getLong(index + 8);
+            if ((chunk.getLong(index) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result. An entry for the same position searched deeper is kept, unless the
+     * new result is exact. The move of an existing entry is kept when the new result has none.
+     * Otherwise the result replaces an empty entry, or the entry with the lowest depth after
+     * taking off eight plies for every generation it is old.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = key & mask;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BITS)];
+        int base = (int) (bucket & ((1 << CHUNK_BITS) - 1)) * BUCKET_BYTES;
+        int age = generation;
+
+        int target = -1;
+        int worst = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int index = base + i * ENTRY_BYTES;
+            long old = chunk.getLong(index + 8);
+            if (old == 0) {
+                // Buckets fill from the front and entries are never removed, so the rest is empty
+                target = index;
+                break;
+            }
+            if ((chunk.getLong(index) ^ old) == key) {
+                if (depth < depth(old) && bound != EXACT && age(old) == age) {
+                    return;
+                }
+                if (move == Move.NONE) {
+                    move = move(old);
+                }
+                target = index;
+                break;
+            }
+            int value = depth(old) - 8 * ((age - age(old)) & AGE_MASK);
+            if (value < worst) {
+                worst = value;
+                target = index;
+            }
+        }
+
+        long data = (move & 0xFFFFFL)
+                | (long) (score & 0xFFFF) << 20
+                | (long) (depth & 0xFF) << 36
+                | (long) bound << 44
+                | (long) age << 46;
+        chunk.putLong(target, key ^ data);
+        chunk.putLong(target + 8, data);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        byte[] zeros = new byte[Math.min(chunks[0].capacity(), 1 << 16)];
+        for (ByteBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i += zeros.length) {
+                chunk.put(i, zeros);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the table in bytes.
+     */
+    public long capacityBytes() {
+        return (mask + 1) * BUCKET_BYTES;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 20);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 36) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 44) & 3);
+    }
+
+    static int age(long data) {
+        return (int) ((data >>> 46) & AGE_MASK);
+    }
+}
@@ -0,0 +1,56 @@
+package com.web.chess.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of its pieces, the side
+ * to move, its castling rights and its en passant file, so every part can be added or removed in
+ * O(1) as moves are played. The keys come from a fixed seed so they are the same on every JVM.
+ */
+public final class Zobrist {
+
+    /**
+     * PIECES[code][square] for every piece code on every square.
+     */
+    static final long[][] PIECES = new long[12][64];
+
+    /**
+     * XORed in when black is to move.
+     */
+    static final long BLACK_TO_MOVE;
+
+    /**
+     * One key per combination of the four castling rights.
+     */
+    static final long[] CASTLING = new long[16];
+
+    /**
+     * One key per file of a capturable en passant square.
+     */
+    static final long[] EN_PASSANT = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        for (int code = 0; code < 12; code++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECES[code][sq] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (int i = 0; i < 8; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+        // Combined rights share keys so that clearing one right is a single XOR per right
+        long[] single = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int rights = 0; rights < 16; rights++) {
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) {
+                    CASTLING[rights] ^= single[bit];
+                }
+            }
+        }
+    }
+
+    private Zobrist() {
+    }
+}
@@ -0,0 +1,14 @@
+package com.web.chess.models;
+
+/**
+ * Asks for a deep search of one position, either a game's current position or a FEN. Zero or
+ * missing limits use the server's defaults; larger values are capped at the server's maximums.
+ */
+public class AnalysisRequest {
+    public String gameId;
+    public String fen;
+    public int depth;
+    public int threads;
+    public int hashMb;
+    public long movetimeMs;
+}
@@ -0,0 +1,11 @@
+package com.web.chess.models;
+
+// AnalysisResponse class representing the result of an analysis search
+public class AnalysisResponse {
+    public String bestMove;
+    public int score;
+    public int depth;
+    public long nodes;
+    public long timeMillis;
+    public int threads;
+}
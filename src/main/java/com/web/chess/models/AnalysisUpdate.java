@@ -0,0 +1,23 @@
+package com.web.chess.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// AnalysisUpdate class representing the best lines of a game's position after one search depth
+public class AnalysisUpdate {
+    public String gameId;
+    public int depth;
+    public List<Line> lines = new ArrayList<>();
+    public long nodes;
+    public long timeMillis;
+    // True for the last update of a position, which is never throttled away
+    public boolean done;
+
+    public static class Line {
+        public String move;
+        // Score for the side to move; mate is moves to mate, negative when mated, or 0
+        public int score;
+        public int mate;
+        public List<String> pv = new ArrayList<>();
+    }
+}
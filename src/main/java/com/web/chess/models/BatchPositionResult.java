@@ -0,0 +1,25 @@
+package com.web.chess.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+// BatchPositionResult class representing one position of a batch: the error if it is invalid,
+// otherwise the normalized FEN, side to move, status and legal moves
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPositionResult {
+    // Line of the request body the position was on, counting from 1
+    public int line;
+    // The input's id, or the id operation of an EPD line
+    public String id;
+    public boolean valid;
+    public String error;
+    public String fen;
+    public String sideToMove;
+    public Boolean check;
+    // "ongoing", "checkmate" or "stalemate"
+    public String status;
+    // Legal moves in coordinate notation, e.g. "e2e4" or "e7e8q"
+    public List<String> moves;
+    // EPD operations after the position, e.g. "bm Qxf7+; id \"puzzle 12\";"
+    public String operations;
+}
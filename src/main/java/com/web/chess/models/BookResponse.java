@@ -0,0 +1,19 @@
+package com.web.chess.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// BookResponse class representing the book moves of a game's position
+public class BookResponse {
+    public List<Candidate> moves = new ArrayList<>();
+
+    public static class Candidate {
+        public String move;
+        public int weight;
+
+        public Candidate(String move, int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+    }
+}
@@ -7,7 +7,11 @@ public class CreateRequest {
     public ClickResponse state;
 
     public CreateRequest (Player player, GameService gameService) {
-        gameId = gameService.createGame(player);
+        this(player, gameService, GameMode.HUMAN);
+    }
+
+    public CreateRequest (Player player, GameService gameService, GameMode mode) {
+        gameId = gameService.createGame(player, mode);
         state = new ClickResponse();
     }
 
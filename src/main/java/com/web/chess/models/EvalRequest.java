@@ -0,0 +1,13 @@
+package com.web.chess.models;
+
+/**
+ * Asks for the evaluation of one position, either a game's current position or a FEN, within a
+ * time budget. A zero or missing budget uses the server's default; larger budgets are capped at
+ * the server's maximum. The evaluator is "classical" or "nnue"; missing uses the server's default.
+ */
+public class EvalRequest {
+    public String gameId;
+    public String fen;
+    public long movetimeMs;
+    public String evaluator;
+}
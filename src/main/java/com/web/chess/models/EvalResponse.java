@@ -0,0 +1,18 @@
+package com.web.chess.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// EvalResponse class representing the evaluation of a position, for the side to move
+public class EvalResponse {
+    public String bestMove;
+    public int score;
+    // Moves to mate, negative when the side to move is mated; 0 if the score is not a mate
+    public int mate;
+    public int depth;
+    public List<String> pv = new ArrayList<>();
+    public long nodes;
+    public long timeMillis;
+    public boolean cached;
+    public String evaluator;
+}
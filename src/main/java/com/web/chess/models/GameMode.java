@@ -0,0 +1,15 @@
+package com.web.chess.models;
+
+/**
+ * Who plays the second side of a game.
+ */
+public enum GameMode {
+    /**
+     * Two people, the second one joins through /api/connect.
+     */
+    HUMAN,
+    /**
+     * The creator plays against the built-in engine, which takes the other color.
+     */
+    ENGINE
+}
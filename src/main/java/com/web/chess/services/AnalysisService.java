@@ -0,0 +1,322 @@
+package com.web.chess.services;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.engine.FenException;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.ParallelSearch;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.Search;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+import com.web.chess.models.AnalysisRequest;
+import com.web.chess.models.AnalysisResponse;
+import com.web.chess.models.EvalRequest;
+import com.web.chess.models.EvalResponse;
+import jakarta.annotation.PreDestroy;
+import java.security.InvalidParameterException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs single deep analysis searches with Lazy SMP. Each request chooses its own depth, thread
+ * count and hash size, capped by the chess.analysis.* properties, and gets a fresh
+ * transposition table of that size. The main search runs on the request's thread; the helpers
+ * run on a shared pool. At most max-concurrent analyses run at once, so the threads and hash
+ * memory in use stay bounded.
+ *
+ * Also answers time-bounded evaluations (/api/eval). These run single-threaded on one
+ * transposition table shared by every game, and their results are kept in an LRU cache keyed by
+ * the position's Zobrist key, so positions many games reach, like the openings, are searched
+ * once. A cached result is reused for any request with the same or a smaller budget; concurrent
+ * requests for a position being searched wait for that search instead of starting their own.
+ * Positions whose search can depend on more than the key, through the game's earlier positions
+ * or a halfmove clock the search can carry to the fifty-move rule, are searched uncached.
+ * A request may pick the evaluator (see NetworkService); each evaluator has its own table, and
+ * its results are cached apart from the others'.
+ */
+@Service
+public class AnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisService.class);
+
+    private static final long NNUE_KEY_SALT = 0x9E3779B97F4A7C15L;
+
+    private final GameService gameService;
+    private final int defaultDepth;
+    private final int maxThreads;
+    private final int defaultHashMegabytes;
+    private final int maxHashMegabytes;
+    private final long maxMoveTime;
+    private final Semaphore running;
+    private final ExecutorService helpers;
+
+    private final long defaultEvalTime;
+    private final long maxEvalTime;
+    private final Semaphore evaluating;
+    private final String defaultEvaluator;
+    private final Map<String, EvalEngine> evalEngines = new HashMap<>();
+    private final Map<Long, CachedEval> evalCache;
+    private final Map<Long, CachedEval> evalsInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The searches of one evaluator and what its cache keys are XORed with, so that the same
+     * position evaluated another way is a different entry.
+     */
+    private record EvalEngine(long salt, ThreadLocal<Search> searches) {
+    }
+
+    /**
+     * A finished or running evaluation and the budget it was given.
+     */
+    private record CachedEval(long budget, CompletableFuture<SearchResult> result) {
+
+        /**
+         * Whether a request with the given budget can use this result. Mates and searches that
+         * reached the maximum depth would not change with more time.
+         */
+        boolean covers(long requested) {
+            if (requested <= budget) {
+                return true;
+            }
+            SearchResult done = result.getNow(null);
+            return done != null && (done.isMate() || done.depth() >= Search.MAX_PLY);
+        }
+    }
+
+    public AnalysisService(GameService gameService, NetworkService networkService,
+                           @Value("${chess.analysis.depth:12}") int defaultDepth,
+                           @Value("${chess.analysis.max-threads:0}") int maxThreads,
+                           @Value("${chess.analysis.hash-mb:64}") int defaultHashMegabytes,
+                           @Value("${chess.analysis.max-hash-mb:256}") int maxHashMegabytes,
+                           @Value("${chess.analysis.max-movetime-ms:30000}") long maxMoveTime,
+                           @Value("${chess.analysis.max-concurrent:1}") int maxConcurrent,
+                           @Value("${chess.eval.movetime-ms:1000}") long defaultEvalTime,
+                           @Value("${chess.eval.max-movetime-ms:5000}") long maxEvalTime,
+                           @Value("${chess.eval.max-concurrent:0}") int maxConcurrentEvals,
+                           @Value("${chess.eval.hash-mb:64}") int evalHashMegabytes,
+                           @Value("${chess.eval.cache-size:10000}") int evalCacheSize,
+                           @Value("${chess.eval.evaluator:classical}") String defaultEvaluator) {
+        this.gameService = gameService;
+        this.defaultDepth = defaultDepth;
+        this.maxThreads = maxThreads > 0 ? maxThreads : Runtime.getRuntime().availableProcessors();
+        this.defaultHashMegabytes = defaultHashMegabytes;
+        this.maxHashMegabytes = maxHashMegabytes;
+        this.maxMoveTime = maxMoveTime;
+        this.running = new Semaphore(Math.max(maxConcurrent, 1));
+        AtomicInteger counter = new AtomicInteger();
+        this.helpers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.defaultEvalTime = defaultEvalTime;
+        this.maxEvalTime = maxEvalTime;
+        this.evaluating = new Semaphore(maxConcurrentEvals > 0 ? maxConcurrentEvals
+                : Runtime.getRuntime().availableProcessors());
+        for (String kind : new String[]{NetworkService.CLASSICAL, NetworkService.NNUE}) {
+            if (networkService.supports(kind)) {
+                TranspositionTable table = new TranspositionTable(evalHashMegabytes);
+                long salt = kind.equals(NetworkService.CLASSICAL) ? 0 : NNUE_KEY_SALT;
+                evalEngines.put(kind, new EvalEngine(salt,
+                        ThreadLocal.withInitial(() -> new Search(table, networkService.newEvaluator(kind)))));
+            }
+        }
+        if (!networkService.supports(defaultEvaluator)) {
+            logger.warn("Eval evaluator {} is not available, using {}", defaultEvaluator, NetworkService.CLASSICAL);
+            defaultEvaluator = NetworkService.CLASSICAL;
+        }
+        this.defaultEvaluator = defaultEvaluator;
+        int capacity = Math.max(evalCacheSize, 1);
+        this.evalCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedEval> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Searches the requested position and blocks until the search is done.
+     *
+     * @throws InvalidParameterException if the request names no game that has a position and no
+     *                                   valid FEN
+     * @throws IllegalStateException     if max-concurrent analyses are already running
+     */
+    public AnalysisResponse analyze(AnalysisRequest request) {
+        Position position = positionOf(request.gameId, request.fen);
+        int threads = clamp(request.threads, 1, maxThreads, maxThreads);
+        int hashMegabytes = clamp(request.hashMb, 1, maxHashMegabytes, defaultHashMegabytes);
+        SearchLimits limits = new SearchLimits(clamp(request.depth, 1, Search.MAX_PLY, defaultDepth), 0,
+                request.movetimeMs > 0 ? Math.min(request.movetimeMs, maxMoveTime) : maxMoveTime);
+
+        if (!running.tryAcquire()) {
+            throw new IllegalStateException("Too many analyses running");
+        }
+        try {
+            ParallelSearch search = new ParallelSearch(new TranspositionTable(hashMegabytes), threads);
+            SearchResult result = search.search(position, limits, helpers);
+            logger.debug("Analysis: {} (score {}, depth {}, {} nodes in {} ms on {} threads)",
+                    Move.toString(result.move()), result.score(), result.depth(), result.nodes(),
+                    result.timeMillis(), threads);
+            AnalysisResponse response = new AnalysisResponse();
+            response.bestMove = result.move() == Move.NONE ? null : Move.toString(result.move());
+            response.score = result.score();
+            response.depth = result.depth();
+            response.nodes = result.nodes();
+            response.timeMillis = result.timeMillis();
+            response.threads = threads;
+            return response;
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * Evaluates the requested position within its time budget, or returns the cached result of
+     * an earlier evaluation of the same position with at least that budget.
+     *
+     * @throws InvalidParameterException if the request names no game that has a position and no
+     *                                   valid FEN, or an evaluator that is not available
+     * @throws IllegalStateException     if max-concurrent evaluations are already searching
+     */
+    public EvalResponse evaluate(EvalRequest request) {
+        Position position = positionOf(request.gameId, request.fen);
+        long budget = request.movetimeMs > 0 ? Math.min(request.movetimeMs, maxEvalTime) : defaultEvalTime;
+        String kind = request.evaluator == null || request.evaluator.isBlank() ? defaultEvaluator
+                : request.evaluator.trim().toLowerCase(Locale.ROOT);
+        EvalEngine engine = evalEngines.get(kind);
+        if (engine == null) {
+            throw new InvalidParameterException("Evaluator not available: " + request.evaluator);
+        }
+        if (!cacheable(position)) {
+            return toResponse(searchEval(engine, position, budget), kind, false);
+        }
+        Long key = position.key() ^ engine.salt();
+
+        CachedEval cached = evalCache.get(key);
+        if (cached != null && cached.covers(budget)) {
+            return toResponse(join(cached), kind, true);
+        }
+        CachedEval pending = new CachedEval(budget, new CompletableFuture<>());
+        CachedEval running = evalsInFlight.compute(key,
+                (k, current) -> current != null && current.covers(budget) ? current : pending);
+        if (running != pending) {
+            return toResponse(join(running), kind, true);
+        }
+
+        try {
+            SearchResult result = searchEval(engine, position, budget);
+            pending.result().complete(result);
+            evalCache.merge(key, pending, (old, fresh) -> deeper(old, fresh) ? old : fresh);
+            return toResponse(result, kind, false);
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            evalsInFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Searches an evaluation on the calling thread.
+     *
+     * @throws IllegalStateException if max-concurrent evaluations are already searching
+     */
+    private SearchResult searchEval(EvalEngine engine, Position position, long budget) {
+        if (!evaluating.tryAcquire()) {
+            throw new IllegalStateException("Too many evaluations running");
+        }
+        try {
+            return engine.searches().get().search(position, new SearchLimits(Search.MAX_PLY, 0, budget));
+        } finally {
+            evaluating.release();
+        }
+    }
+
+    /**
+     * Whether a search of the position only depends on its key, so its result can be shared.
+     * The search scores repetitions of earlier game positions and the fifty-move rule as draws;
+     * a repetition needs at least four reversible moves of history, and the clock can only reach
+     * 100 within the search if it starts within MAX_PLY of it.
+     */
+    private static boolean cacheable(Position position) {
+        return Math.min(position.undoCount(), position.halfmoves()) < 4
+                && position.halfmoves() + Search.MAX_PLY < 100;
+    }
+
+    /**
+     * Waits for another request's evaluation, failing the same way it did.
+     */
+    private static SearchResult join(CachedEval eval) {
+        try {
+            return eval.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Whether the first cached evaluation went deeper than the second, so it should be kept.
+     */
+    private static boolean deeper(CachedEval first, CachedEval second) {
+        SearchResult a = first.result().getNow(null);
+        SearchResult b = second.result().getNow(null);
+        return a != null && b != null && a.depth() > b.depth();
+    }
+
+    private static EvalResponse toResponse(SearchResult result, String evaluator, boolean cached) {
+        EvalResponse response = new EvalResponse();
+        response.evaluator = evaluator;
+        response.bestMove = result.move() == Move.NONE ? null : Move.toString(result.move());
+        response.score = result.score();
+        response.mate = result.mateIn();
+        response.depth = result.depth();
+        for (int move : result.pv()) {
+            response.pv.add(Move.toString(move));
+        }
+        response.nodes = result.nodes();
+        response.timeMillis = result.timeMillis();
+        response.cached = cached;
+        return response;
+    }
+
+    private Position positionOf(String gameId, String fen) {
+        if (fen != null && !fen.isBlank()) {
+            try {
+                return Position.fromFen(fen);
+            } catch (FenException e) {
+                throw new InvalidParameterException("Invalid FEN: " + e.getMessage());
+            }
+        }
+        ChessBoardGUI game = gameId == null ? null : gameService.getBoard(gameId);
+        Position position = game == null ? null : game.positionCopy();
+        if (position == null) {
+            throw new InvalidParameterException("No position to analyze for game " + gameId);
+        }
+        return position;
+    }
+
+    private static int clamp(int value, int min, int max, int fallback) {
+        return value > 0 ? Math.max(min, Math.min(value, max)) : fallback;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        helpers.shutdownNow();
+    }
+}
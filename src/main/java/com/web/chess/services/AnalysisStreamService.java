@@ -0,0 +1,273 @@
+package com.web.chess.services;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.Search;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+import com.web.chess.models.AnalysisUpdate;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Streams multi-PV analysis of games on /topic/analysis/{id}. A game is analysed while its topic
+ * has subscribers: the best chess.stream.lines lines are published after every completed depth,
+ * and the last update of a position is marked done. When the game's position changes (see
+ * positionChanged) the running search is stopped and the new position searched instead.
+ *
+ * Searches run on a small fixed pool and share one transposition table. They are time-sliced so
+ * that one game cannot hold a thread for its whole move time while others wait: after
+ * chess.stream.slice-ms a search stops and goes to the back of the queue, and the next slice
+ * searches again from the shared table, so only depths beyond those already published are new.
+ * How often each subscriber receives the updates is limited by AnalysisThrottle.
+ */
+@Service
+public class AnalysisStreamService {
+
+    public static final String TOPIC_PREFIX = "/topic/analysis/";
+
+    /**
+     * Native header set on the last update of a position, so the throttle always delivers it.
+     */
+    public static final String DONE_HEADER = "analysis-done";
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisStreamService.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GameService gameService;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private final int lines;
+    private final long sliceMillis;
+    private final ExecutorService executor;
+
+    /**
+     * Subscriptions (session and subscription id) to each game's topic, and the game of each
+     * subscription, since unsubscribe frames carry no destination.
+     */
+    private final Map<String, Set<String>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, String> games = new ConcurrentHashMap<>();
+
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+    /**
+     * The analysis of one position of a game. The last update is kept for late subscribers. The
+     * time and nodes of the slices so far are only used by the slice running at the time.
+     */
+    private static final class Run {
+        final long key;
+        final AtomicBoolean stop = new AtomicBoolean();
+        volatile AnalysisUpdate last;
+        long spentMillis;
+        long nodes;
+
+        Run(long key) {
+            this.key = key;
+        }
+    }
+
+    public AnalysisStreamService(SimpMessagingTemplate messagingTemplate, GameService gameService,
+                                 @Value("${chess.stream.lines:3}") int lines,
+                                 @Value("${chess.stream.depth:24}") int depth,
+                                 @Value("${chess.stream.movetime-ms:60000}") long moveTime,
+                                 @Value("${chess.stream.threads:2}") int threads,
+                                 @Value("${chess.stream.slice-ms:1000}") long sliceMillis,
+                                 @Value("${chess.stream.hash-mb:32}") int hashMegabytes) {
+        this.messagingTemplate = messagingTemplate;
+        this.gameService = gameService;
+        this.table = new TranspositionTable(hashMegabytes);
+        this.limits = new SearchLimits(depth, 0, moveTime);
+        this.lines = Math.max(lines, 1);
+        this.sliceMillis = Math.max(sliceMillis, 0);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "stream-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        String gameId = destination.substring(TOPIC_PREFIX.length());
+        String subscription = accessor.getSessionId() + "/" + accessor.getSubscriptionId();
+        synchronized (this) {
+            games.put(subscription, gameId);
+            subscribers.computeIfAbsent(gameId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+        Run run = runs.get(gameId);
+        AnalysisUpdate last = run == null ? null : run.last;
+        if (last != null && last.done) {
+            // The search is over, so nothing else will be published for this position. Sent from
+            // here rather than the pool, where it could wait behind other games' searches.
+            publish(gameId, last);
+        } else {
+            positionChanged(gameId);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(accessor.getSessionId() + "/" + accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String prefix = event.getSessionId() + "/";
+        for (String subscription : games.keySet()) {
+            if (subscription.startsWith(prefix)) {
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    private void unsubscribe(String subscription) {
+        String gameId = games.remove(subscription);
+        if (gameId == null) {
+            return;
+        }
+        synchronized (this) {
+            Set<String> watching = subscribers.get(gameId);
+            if (watching != null && watching.remove(subscription) && watching.isEmpty()) {
+                subscribers.remove(gameId);
+                Run run = runs.remove(gameId);
+                if (run != null) {
+                    run.stop.set(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restarts the analysis of a game if anyone is watching it and its position is not the one
+     * being analysed. Called whenever a move is played or a position is set up.
+     */
+    public void positionChanged(String gameId) {
+        if (gameId == null || !subscribers.containsKey(gameId)) {
+            return;
+        }
+        ChessBoardGUI game = gameService.getBoard(gameId);
+        Position position = game == null ? null : game.positionCopy();
+        if (position == null) {
+            return;
+        }
+        Run run;
+        synchronized (this) {
+            Run current = runs.get(gameId);
+            if (current != null && current.key == position.key()) {
+                // e.g. a click that only selected a piece
+                return;
+            }
+            if (current != null) {
+                current.stop.set(true);
+            }
+            if (!subscribers.containsKey(gameId)) {
+                return;
+            }
+            run = new Run(position.key());
+            runs.put(gameId, run);
+        }
+        executor.execute(() -> analyze(gameId, position, run));
+    }
+
+    /**
+     * Searches one slice of the run, and queues the next slice if the run has time left.
+     */
+    private void analyze(String gameId, Position position, Run run) {
+        if (run.stop.get()) {
+            return;
+        }
+        try {
+            long remaining = limits.timeMillis() > 0 ? Math.max(limits.timeMillis() - run.spentMillis, 1) : 0;
+            long slice = sliceMillis == 0 ? remaining : remaining == 0 ? sliceMillis : Math.min(sliceMillis, remaining);
+            Search search = new Search(table, run.stop);
+            SearchResult result = search.search(position, new SearchLimits(limits.depth(), 0, slice), lines, found -> {
+                AnalysisUpdate last = run.last;
+                // A later slice searches the depths before it again
+                if (!run.stop.get() && !found.isEmpty() && (last == null || found.get(0).depth() > last.depth)) {
+                    AnalysisUpdate update = toUpdate(gameId, found);
+                    update.nodes += run.nodes;
+                    update.timeMillis += run.spentMillis;
+                    run.last = update;
+                    publish(gameId, update);
+                }
+            });
+            run.spentMillis += result.timeMillis();
+            run.nodes += result.nodes();
+            if (run.stop.get()) {
+                return;
+            }
+            boolean timedOut = slice > 0 && result.timeMillis() >= slice;
+            if (timedOut && (limits.timeMillis() == 0 || run.spentMillis < limits.timeMillis())) {
+                // Let the other watched games search before going on
+                executor.execute(() -> analyze(gameId, position, run));
+                return;
+            }
+            AnalysisUpdate done = run.last != null ? run.last : toUpdate(gameId, List.of());
+            done.nodes = run.nodes;
+            done.timeMillis = run.spentMillis;
+            done.done = true;
+            run.last = done;
+            publish(gameId, done);
+        } catch (RuntimeException e) {
+            logger.error("Analysis stream failed for game {}", gameId, e);
+        }
+    }
+
+    private void publish(String gameId, AnalysisUpdate update) {
+        Map<String, Object> headers = update.done ? Map.of(DONE_HEADER, "true") : null;
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + gameId, update, headers);
+    }
+
+    private static AnalysisUpdate toUpdate(String gameId, List<SearchResult> found) {
+        AnalysisUpdate update = new AnalysisUpdate();
+        update.gameId = gameId;
+        for (SearchResult result : found) {
+            AnalysisUpdate.Line line = new AnalysisUpdate.Line();
+            line.move = Move.toString(result.move());
+            line.score = result.score();
+            line.mate = result.mateIn();
+            for (int move : result.pv()) {
+                line.pv.add(Move.toString(move));
+            }
+            update.lines.add(line);
+            update.depth = Math.max(update.depth, result.depth());
+            update.nodes = Math.max(update.nodes, result.nodes());
+            update.timeMillis = Math.max(update.timeMillis, result.timeMillis());
+        }
+        return update;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Run run : runs.values()) {
+            run.stop.set(true);
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,306 @@
+package com.web.chess.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.chess.engine.Fen;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.engine.Position;
+import com.web.chess.models.BatchPositionResult;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Checks streams of positions for /api/batch/positions. Each line of the input holds one position,
+ * as an NDJSON object {"fen": ..., "id": ...} or as an EPD line (a FEN, with or without move
+ * counters, optionally followed by EPD operations). Each position is answered with one NDJSON
+ * BatchPositionResult line, in input order, as soon as it and the positions before it are done.
+ * Blank lines, and EPD lines starting with '#', are skipped.
+ *
+ * Positions are checked on a fixed pool of chess.batch.threads workers shared by all requests.
+ * A request has at most chess.batch.window positions in flight; once that many are read but not
+ * yet written back, reading its body pauses, so a client that sends faster than it reads is
+ * slowed down instead of filling the heap. At most chess.batch.max-concurrent requests run at once.
+ */
+@Service
+public class BatchService {
+
+    public enum Format { NDJSON, EPD }
+
+    /**
+     * Longest line accepted. FENs are under 100 characters; the rest leaves room for EPD
+     * operations and JSON fields. Longer lines are not read into memory past this, see LineReader.
+     */
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService workers;
+    private final int window;
+    private final Semaphore running;
+
+    /**
+     * Position and move buffer of each worker, reused for every position it checks.
+     */
+    private final ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+    private final ThreadLocal<MoveList> moveLists = ThreadLocal.withInitial(MoveList::new);
+
+    public BatchService(@Value("${chess.batch.threads:0}") int threads,
+                        @Value("${chess.batch.window:256}") int window,
+                        @Value("${chess.batch.max-concurrent:4}") int maxConcurrent) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "batch-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.window = Math.max(window, 1);
+        this.running = new Semaphore(Math.max(maxConcurrent, 1));
+    }
+
+    /**
+     * Returns a response body that checks the positions read from in. The batch counts against
+     * max-concurrent from now until the body is written.
+     *
+     * @throws IllegalStateException if max-concurrent batches are already running
+     */
+    public StreamingResponseBody open(InputStream in, Format format) {
+        if (!running.tryAcquire()) {
+            throw new IllegalStateException("Too many batches running");
+        }
+        return out -> {
+            try {
+                process(in, format, out);
+            } finally {
+                running.release();
+            }
+        };
+    }
+
+    /**
+     * Reads positions from in until it ends and writes a result line for each to out. Results are
+     * written, and out flushed, from the workers, so the caller must not use out until this
+     * returns. Stops reading if writing fails, e.g. because the client went away.
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public void process(InputStream in, Format format, OutputStream out) throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Semaphore inFlight = new Semaphore(window);
+        // Completes once every result so far is written; each write waits for the one before
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        StringBuilder buffer = new StringBuilder();
+        int lineNumber = 0;
+        while (reader.next(buffer)) {
+            lineNumber++;
+            String line = buffer.toString();
+            if (line.isBlank() || (format == Format.EPD && line.startsWith("#"))) {
+                continue;
+            }
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for batch results");
+            }
+            if (written.isCompletedExceptionally()) {
+                break;
+            }
+            int number = lineNumber;
+            String text = line;
+            CompletableFuture<byte[]> result = CompletableFuture.supplyAsync(() -> check(number, text, format), workers);
+            written = written.thenCombine(result, (ignored, bytes) -> {
+                write(out, bytes);
+                return null;
+            });
+            written.whenComplete((ignored, failure) -> inFlight.release());
+        }
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void write(OutputStream out, byte[] bytes) {
+        try {
+            out.write(bytes);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks the position on one input line and returns its result line.
+     */
+    private byte[] check(int lineNumber, String line, Format format) {
+        BatchPositionResult result = new BatchPositionResult();
+        result.line = lineNumber;
+        try {
+            if (line.length() > MAX_LINE_LENGTH) {
+                throw new IllegalArgumentException("Line is longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            Position position = positions.get();
+            if (format == Format.NDJSON) {
+                JsonNode input = mapper.readTree(line);
+                JsonNode id = input.get("id");
+                result.id = id == null || id.isNull() ? null : id.asText();
+                JsonNode fen = input.get("fen");
+                if (fen == null || !fen.isTextual()) {
+                    throw new IllegalArgumentException("Expected a JSON object with a \"fen\" string");
+                }
+                Fen.parse(fen.asText(), position);
+            } else {
+                int end = Fen.read(line, 0, line.length(), position);
+                String operations = line.substring(end).trim();
+                if (!operations.isEmpty()) {
+                    result.operations = operations;
+                    result.id = epdId(operations);
+                }
+            }
+            describe(position, result);
+        } catch (IllegalArgumentException e) {
+            // Including FenException
+            result.valid = false;
+            result.error = e.getMessage();
+        } catch (JsonProcessingException e) {
+            result.valid = false;
+            result.error = "Invalid JSON: " + e.getOriginalMessage();
+        }
+        try {
+            return mapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void describe(Position position, BatchPositionResult result) {
+        MoveList moves = moveLists.get();
+        MoveGenerator.generateLegal(position, moves);
+        int side = position.sideToMove();
+        boolean check = position.checkers(side) != 0;
+        result.valid = true;
+        result.fen = position.toFen();
+        result.sideToMove = side == Position.WHITE ? "w" : "b";
+        result.check = check;
+        result.status = moves.size() > 0 ? "ongoing" : check ? "checkmate" : "stalemate";
+        result.moves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            result.moves.add(Move.toString(moves.get(i)));
+        }
+    }
+
+    /**
+     * Returns the value of the id operation among EPD operations, without its quotes, or null.
+     */
+    static String epdId(String operations) {
+        int start = 0;
+        while (start < operations.length()) {
+            // Operations end at a ';' outside quotes
+            int end = start;
+            boolean quoted = false;
+            while (end < operations.length() && (quoted || operations.charAt(end) != ';')) {
+                if (operations.charAt(end) == '"') {
+                    quoted = !quoted;
+                }
+                end++;
+            }
+            String operation = operations.substring(start, end).trim();
+            if (operation.startsWith("id ")) {
+                String value = operation.substring(3).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Splits the input into lines like BufferedReader.readLine(), but keeps at most
+     * MAX_LINE_LENGTH + 1 characters of each and skips the rest, so one endless line cannot fill
+     * the heap; check() then rejects the line as too long.
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+        private final char[] chunk = new char[8192];
+        private int position;
+        private int limit;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next line into line, without its line terminator, and returns false at the
+         * end of the input.
+         */
+        boolean next(StringBuilder line) throws IOException {
+            line.setLength(0);
+            boolean started = false;
+            boolean skipped = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(reader.read(chunk, 0, chunk.length), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        if (!started) {
+                            return false;
+                        }
+                        break;
+                    }
+                }
+                started = true;
+                int start = position;
+                while (position < limit && chunk[position] != '\n') {
+                    position++;
+                }
+                int kept = Math.min(position - start, MAX_LINE_LENGTH + 1 - line.length());
+                line.append(chunk, start, kept);
+                skipped |= kept < position - start;
+                if (position < limit) {
+                    // Past the '\n'
+                    position++;
+                    break;
+                }
+            }
+            int last = line.length() - 1;
+            if (!skipped && last >= 0 && line.charAt(last) == '\r') {
+                line.setLength(last);
+            }
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
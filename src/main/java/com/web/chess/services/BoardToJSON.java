@@ -1,36 +1,40 @@
 package com.web.chess.services;
 
-import java.awt.Color;
-
 import com.web.chess.ChessBoardGUI;
 import com.web.chess.Piece;
 import com.web.chess.models.ClickResponse;
 
 public class BoardToJSON {
 
-    public static String[][] boardToImagePaths (Piece[][] boardstate) {
+    public static String[][] boardToImagePaths (ChessBoardGUI game) {
         String[][] stringBoard = new String[8][8];
         for (int row = 0; row < 8;row++) {
             for(int col = 0; col < 8; col++) {
-                stringBoard[row][col] = boardstate[row][col].getImagePath();
+                stringBoard[row][col] = Piece.imagePath(game.pieceAt(row, col));
             }
         }
         return stringBoard;
     }
 
-    public static ClickResponse clickToJSON (Piece[][] boardstate, ChessBoardGUI.gamestate state) {
+    public static ClickResponse clickToJSON (ChessBoardGUI game) {
+        // Engine threads can move while the response is built
+        synchronized (game) {
+            return buildResponse(game);
+        }
+    }
+
+    private static ClickResponse buildResponse (ChessBoardGUI game) {
         ClickResponse response = new ClickResponse();
-        response.boardstate = (boardToImagePaths(boardstate));
+        response.boardstate = (boardToImagePaths(game));
         Boolean[][] highlights = new Boolean[8][8];
         for (int row = 0; row < 8;row++) {
             for(int col = 0; col < 8; col++) {
-                highlights[row][col] = (Color.green == boardstate[row][col].getBackground());
+                highlights[row][col] = game.isHighlighted(row, col);
             }
         }
         response.highlights = highlights;
-        response.gamestate = state.toString();
+        response.gamestate = game.currentGamestate.toString();
         return response;
     }
 
 }
-
@@ -0,0 +1,56 @@
+package com.web.chess.services;
+
+import com.web.chess.engine.Move;
+import com.web.chess.engine.PolyglotBook;
+import com.web.chess.engine.Position;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The opening book named by chess.book.path, if any. Without a book, or if it cannot be opened,
+ * every lookup comes back empty and the engine searches as usual.
+ */
+@Service
+public class BookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
+
+    private final PolyglotBook book;
+
+    public BookService(@Value("${chess.book.path:}") String path) {
+        PolyglotBook opened = null;
+        if (!path.isBlank()) {
+            try {
+                opened = PolyglotBook.open(Path.of(path));
+                logger.info("Opened book {} with {} entries", path, opened.size());
+            } catch (IOException e) {
+                logger.error("Could not open book {}", path, e);
+            }
+        }
+        this.book = opened;
+    }
+
+    public boolean hasBook() {
+        return book != null;
+    }
+
+    /**
+     * Returns the book moves for the position, heaviest first.
+     */
+    public List<PolyglotBook.BookMove> moves(Position position) {
+        return book == null ? List.of() : book.moves(position);
+    }
+
+    /**
+     * Returns a weighted random book move for the position, or Move.NONE.
+     */
+    public int pick(Position position) {
+        return book == null ? Move.NONE : book.pick(position, ThreadLocalRandom.current());
+    }
+}
@@ -0,0 +1,300 @@
+package com.web.chess.services;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.engine.Bitbases;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.Position;
+import com.web.chess.engine.Search;
+import com.web.chess.engine.SearchLimits;
+import com.web.chess.engine.SearchResult;
+import com.web.chess.engine.TranspositionTable;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Plays the engine's side of engine games. Searches run on a fixed pool of worker threads, one
+ * search per thread at a time, and all of them share one transposition table, so memory stays
+ * bounded however many games are open. Positions in the opening book are answered from the book
+ * without searching. Replies are pushed on /topic/game/{id} like human moves.
+ *
+ * After its move the engine ponders: the thread that played the move goes on to search the
+ * position after the reply it expects, for up to chess.engine.ponder-ms but no more than
+ * PONDER_MOVE_TIMES move times, so a game whose player has left does not keep a core busy for
+ * long. If the human plays that reply, the ponder search becomes the engine's search and only runs
+ * for what is left of the move time, and its move is played as soon as it stops, so the answer
+ * often comes at once; any other move stops it, and the new search still finds the ponder's
+ * results in the shared table. Pondering only uses idle threads: a search that would otherwise
+ * wait in the queue stops the ponders of other games to make room, and a ponder does not start
+ * while a search is waiting.
+ *
+ * Searches use the evaluator named by chess.engine.evaluator (see NetworkService), falling back
+ * to the classical one if no network is loaded.
+ */
+@Service
+public class EngineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngineService.class);
+
+    /**
+     * Longest ponder, in move times.
+     */
+    private static final int PONDER_MOVE_TIMES = 5;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BookService bookService;
+    private final NetworkService networkService;
+    private final String evaluator;
+    private final AnalysisStreamService analysisStreamService;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Search> searches;
+    private final boolean ponder;
+    private final long ponderTime;
+    private final Map<String, Ponder> ponders = new ConcurrentHashMap<>();
+    private final AtomicInteger ponderHits = new AtomicInteger();
+    /**
+     * Engine moves queued or being searched, and ponder searches running. Together they tell
+     * whether a new search would have to wait for a thread.
+     */
+    private final AtomicInteger searching = new AtomicInteger();
+    private final AtomicInteger runningPonders = new AtomicInteger();
+
+    /**
+     * A search of the position after the reply the engine expects, running while the human
+     * thinks.
+     */
+    private static final class Ponder {
+        final int move;
+        final long key;
+        final long start = System.currentTimeMillis();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CompletableFuture<SearchResult> result = new CompletableFuture<>();
+
+        Ponder(int move, long key) {
+            this.move = move;
+            this.key = key;
+        }
+    }
+
+    public EngineService(SimpMessagingTemplate messagingTemplate, BookService bookService,
+                         NetworkService networkService, AnalysisStreamService analysisStreamService,
+                         @Value("${chess.engine.evaluator:classical}") String evaluator,
+                         @Value("${chess.engine.threads:0}") int threads,
+                         @Value("${chess.engine.hash-mb:64}") int hashMegabytes,
+                         @Value("${chess.engine.depth:64}") int depth,
+                         @Value("${chess.engine.nodes:0}") long nodes,
+                         @Value("${chess.engine.movetime-ms:1000}") long moveTime,
+                         @Value("${chess.engine.ponder:true}") boolean ponder,
+                         @Value("${chess.engine.ponder-ms:5000}") long ponderTime) {
+        this.messagingTemplate = messagingTemplate;
+        this.bookService = bookService;
+        this.networkService = networkService;
+        if (!networkService.supports(evaluator)) {
+            logger.warn("Engine evaluator {} is not available, using {}", evaluator, NetworkService.CLASSICAL);
+            evaluator = NetworkService.CLASSICAL;
+        }
+        this.evaluator = evaluator;
+        this.analysisStreamService = analysisStreamService;
+        this.table = new TranspositionTable(hashMegabytes);
+        this.limits = new SearchLimits(depth, nodes, moveTime);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "engine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searches = ThreadLocal.withInitial(() -> new Search(table, networkService.newEvaluator(this.evaluator)));
+        this.ponder = ponder;
+        this.ponderTime = moveTime > 0 ? Math.min(ponderTime, PONDER_MOVE_TIMES * moveTime) : ponderTime;
+        // Searches probe the endgame bitbases, build them before the first game needs them
+        executor.execute(Bitbases::load);
+    }
+
+    /**
+     * Starts a search if it is the engine's turn in the given game. The move is played and the
+     * new state pushed to the game's topic once the search finishes. If the engine was pondering
+     * on this very position, that search is used instead.
+     */
+    public void requestMove(String gameId, ChessBoardGUI game) {
+        if (game == null || !game.isEngineTurn()) {
+            return;
+        }
+        Position position = game.positionCopy();
+        if (position == null) {
+            return;
+        }
+        Ponder pondering = ponders.remove(gameId);
+        if (pondering != null) {
+            if (pondering.key == position.key()) {
+                ponderHit(gameId, game, position, pondering);
+                return;
+            }
+            pondering.stop.set(true);
+        }
+        searching.incrementAndGet();
+        makeRoom(gameId);
+        executor.execute(() -> {
+            int[] pv = {};
+            boolean played = false;
+            try {
+                int move = bookService.pick(position);
+                if (move != Move.NONE) {
+                    logger.debug("Game {}: engine plays book move {}", gameId, Move.toString(move));
+                } else {
+                    SearchResult result = searches.get().search(position, limits);
+                    logger.debug("Game {}: engine plays {} (score {}, depth {}, {} nodes in {} ms)", gameId,
+                            Move.toString(result.move()), result.score(), result.depth(), result.nodes(),
+                            result.timeMillis());
+                    move = result.move();
+                    pv = result.pv();
+                }
+                played = play(gameId, game, position, move);
+            } catch (RuntimeException e) {
+                logger.error("Engine search failed for game {}", gameId, e);
+            } finally {
+                searching.decrementAndGet();
+            }
+            if (played) {
+                ponder(gameId, game, position, pv);
+            }
+        });
+    }
+
+    /**
+     * Plays the move if the game is still in the searched position, and pushes the new state.
+     */
+    private boolean play(String gameId, ChessBoardGUI game, Position position, int move) {
+        if (move == Move.NONE || !game.playEngineMove(move, position.key())) {
+            return false;
+        }
+        messagingTemplate.convertAndSend("/topic/game/" + gameId, BoardToJSON.clickToJSON(game));
+        analysisStreamService.positionChanged(gameId);
+        return true;
+    }
+
+    /**
+     * Searches the position after the engine's move and the reply the line predicts, on the
+     * calling engine thread, until the human moves or the ponder time runs out. Does nothing if
+     * a search is waiting for the thread.
+     */
+    private void ponder(String gameId, ChessBoardGUI game, Position position, int[] pv) {
+        if (!ponder || pv.length < 2 || !executor.getQueue().isEmpty()) {
+            return;
+        }
+        Position expected = new Position(position);
+        expected.makeMove(pv[0]);
+        long played = expected.key();
+        expected.makeMove(pv[1]);
+        Ponder pondering = new Ponder(pv[1], expected.key());
+        ponders.put(gameId, pondering);
+        Position current = game.positionCopy();
+        if (current == null || current.key() != played) {
+            // The human has already answered, so requestMove did not see this ponder
+            ponders.remove(gameId, pondering);
+            return;
+        }
+        logger.debug("Game {}: engine ponders on {}", gameId, Move.toString(pv[1]));
+        SearchResult result;
+        runningPonders.incrementAndGet();
+        try {
+            Search search = new Search(table, pondering.stop, networkService.newEvaluator(evaluator));
+            result = search.search(expected, new SearchLimits(limits.depth(), 0, ponderTime));
+        } catch (RuntimeException e) {
+            pondering.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            runningPonders.decrementAndGet();
+        }
+        // Counted as idle from here, so a ponder hit played by this completion can ponder again
+        pondering.result.complete(result);
+    }
+
+    /**
+     * Turns the ponder search into the engine's search: it may run until the move time, counted
+     * from when pondering started, is used up. Its move is played as soon as it stops, on the
+     * ponder's own thread, rather than queued behind other games' searches.
+     */
+    private void ponderHit(String gameId, ChessBoardGUI game, Position position, Ponder pondering) {
+        ponderHits.incrementAndGet();
+        long remaining = Math.max(0, limits.timeMillis() - (System.currentTimeMillis() - pondering.start));
+        if (limits.timeMillis() > 0) {
+            CompletableFuture.delayedExecutor(remaining, TimeUnit.MILLISECONDS).execute(() -> pondering.stop.set(true));
+        }
+        pondering.result.whenComplete((result, failure) -> {
+            if (failure != null) {
+                logger.error("Engine ponder failed for game {}", gameId, failure);
+                return;
+            }
+            logger.debug("Game {}: ponder hit, engine plays {} (score {}, depth {}, {} nodes in {} ms)", gameId,
+                    Move.toString(result.move()), result.score(), result.depth(), result.nodes(),
+                    result.timeMillis());
+            boolean played;
+            try {
+                played = play(gameId, game, position, result.move());
+            } catch (RuntimeException e) {
+                logger.error("Engine move failed for game {}", gameId, e);
+                return;
+            }
+            if (played && searching.get() + runningPonders.get() < executor.getMaximumPoolSize()) {
+                // Usually this is the ponder's thread, free again once the callback returns
+                executor.execute(() -> ponder(gameId, game, position, result.pv()));
+            }
+        });
+    }
+
+    /**
+     * Stops as many ponder searches of other games as there are searches that would otherwise
+     * wait for a thread, so real searches never queue behind a ponder.
+     */
+    private void makeRoom(String gameId) {
+        int waiting = searching.get() + runningPonders.get() - executor.getMaximumPoolSize();
+        for (Map.Entry<String, Ponder> entry : ponders.entrySet()) {
+            if (waiting <= 0) {
+                return;
+            }
+            Ponder other = entry.getValue();
+            if (!entry.getKey().equals(gameId) && !other.result.isDone() && ponders.remove(entry.getKey(), other)) {
+                other.stop.set(true);
+                waiting--;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of engine moves that came from a ponder search.
+     */
+    int ponderHits() {
+        return ponderHits.get();
+    }
+
+    /**
+     * Returns the reply the engine is pondering on in the given game, or Move.NONE.
+     */
+    int ponderMove(String gameId) {
+        Ponder pondering = ponders.get(gameId);
+        return pondering == null ? Move.NONE : pondering.move;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Ponder pondering : ponders.values()) {
+            pondering.stop.set(true);
+        }
+        executor.shutdownNow();
+    }
+}
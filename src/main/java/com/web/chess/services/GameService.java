@@ -1,25 +1,29 @@
 package com.web.chess.services;
 
 import com.web.chess.ChessBoardGUI;
+import com.web.chess.models.GameMode;
 import com.web.chess.models.Player;
 import org.springframework.stereotype.Service;
 
 import java.security.InvalidParameterException;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Service
 public class GameService {
-    HashMap<String, ChessBoardGUI> gameMap;
-    int counter;
+    // Read from request, STOMP, engine and analysis threads while games are being created
+    Map<String, ChessBoardGUI> gameMap;
+    AtomicInteger counter;
 
     private static final Logger logger = LoggerFactory.getLogger(GameService.class);
 
     public GameService() {
-        gameMap = new HashMap<String, ChessBoardGUI>();
-        counter = 0;
+        gameMap = new ConcurrentHashMap<String, ChessBoardGUI>();
+        counter = new AtomicInteger();
     }
 
     public ChessBoardGUI getBoard(String gameId) {
@@ -28,11 +32,25 @@ public class GameService {
     }
     
     public int createGame (Player player) {
+        return createGame(player, GameMode.HUMAN);
+    }
+
+    /**
+     * Creates a game for player 1. In ENGINE mode the engine is player 2 and plays the other
+     * color, so nobody can connect to the game.
+     */
+    public int createGame (Player player, GameMode mode) {
 
-        ChessBoardGUI game = new ChessBoardGUI(player);
-        counter++;
-        gameMap.put(Integer.toString(counter), game);
-        return counter;
+        ChessBoardGUI game = new ChessBoardGUI(player, mode);
+        if (mode == GameMode.ENGINE) {
+            Player engine = new Player();
+            engine.name = "Engine";
+            engine.color = player.color == 1 ? -1 : 1;
+            game.setPlayer2(engine);
+        }
+        int id = counter.incrementAndGet();
+        gameMap.put(Integer.toString(id), game);
+        return id;
     }
 
     public void connect (String gameId, Player player) throws InvalidParameterException {
@@ -40,6 +58,9 @@ public class GameService {
         if (game == null) {
             throw new InvalidParameterException("Game with " + gameId + " does not exist");
         }
+        if (game.hasEngine()) {
+            throw new InvalidParameterException("Game " + gameId + " is played against the engine");
+        }
         // rest of the logic
         game.setPlayer2(player);
     }
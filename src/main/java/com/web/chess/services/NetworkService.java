@@ -0,0 +1,69 @@
+package com.web.chess.services;
+
+import com.web.chess.engine.ClassicalEvaluator;
+import com.web.chess.engine.Evaluator;
+import com.web.chess.engine.Network;
+import com.web.chess.engine.NnueEvaluator;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The evaluation network named by chess.nnue.path, if any, and the evaluators searches can be run
+ * with: "classical" (Evaluation) or "nnue". Without a network, or if it cannot be read, only the
+ * classical evaluator is available.
+ */
+@Service
+public class NetworkService {
+
+    public static final String CLASSICAL = "classical";
+    public static final String NNUE = "nnue";
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkService.class);
+
+    private final Network network;
+
+    public NetworkService(@Value("${chess.nnue.path:}") String path) {
+        Network loaded = null;
+        if (!path.isBlank()) {
+            try {
+                loaded = Network.load(Path.of(path));
+                logger.info("Loaded network {} with {} hidden units ({})", path, loaded.hiddenSize(),
+                        loaded.vectorized() ? "Vector API" : "scalar, build with -Pvector and start with --add-modules jdk.incubator.vector");
+            } catch (IOException e) {
+                logger.error("Could not load network {}", path, e);
+            }
+        }
+        this.network = loaded;
+    }
+
+    public boolean hasNetwork() {
+        return network != null;
+    }
+
+    /**
+     * Whether evaluators of the given kind can be made.
+     */
+    public boolean supports(String kind) {
+        return CLASSICAL.equals(kind) || (NNUE.equals(kind) && network != null);
+    }
+
+    /**
+     * Returns a new evaluator of the given kind, for one search.
+     *
+     * @throws IllegalArgumentException if the kind is unknown, or nnue without a network
+     */
+    public Evaluator newEvaluator(String kind) {
+        if (CLASSICAL.equals(kind)) {
+            return new ClassicalEvaluator();
+        }
+        if (NNUE.equals(kind) && network != null) {
+            return new NnueEvaluator(network);
+        }
+        throw new IllegalArgumentException("No " + kind + " evaluator"
+                + (NNUE.equals(kind) ? ", chess.nnue.path names no network" : ""));
+    }
+}
@@ -0,0 +1,80 @@
+package com.web.chess;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.web.chess.services.AnalysisStreamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+class AnalysisThrottleTests {
+
+	private static final String TOPIC = AnalysisStreamService.TOPIC_PREFIX + "1";
+
+	private static Message<?> subscribe(String session, String subscription, String interval) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		accessor.setSessionId(session);
+		accessor.setSubscriptionId(subscription);
+		accessor.setDestination(TOPIC);
+		if (interval != null) {
+			accessor.setNativeHeader(AnalysisThrottle.INTERVAL_HEADER, interval);
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static Message<?> update(String session, String subscription, String destination, boolean done) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(session);
+		accessor.setSubscriptionId(subscription);
+		accessor.setDestination(destination);
+		if (done) {
+			accessor.setNativeHeader(AnalysisStreamService.DONE_HEADER, "true");
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	@Test
+	void dropsUpdatesWithinTheInterval() {
+		AnalysisThrottle throttle = new AnalysisThrottle(60_000);
+		throttle.preSend(subscribe("a", "0", null), null);
+		assertNotNull(throttle.preSend(update("a", "0", TOPIC, false), null));
+		assertNull(throttle.preSend(update("a", "0", TOPIC, false), null));
+		// The last update of a position always goes through
+		assertNotNull(throttle.preSend(update("a", "0", TOPIC, true), null));
+	}
+
+	@Test
+	void throttlesEachSubscriberOnItsOwn() {
+		AnalysisThrottle throttle = new AnalysisThrottle(60_000);
+		throttle.preSend(subscribe("a", "0", null), null);
+		throttle.preSend(subscribe("b", "0", null), null);
+		assertNotNull(throttle.preSend(update("a", "0", TOPIC, false), null));
+		assertNotNull(throttle.preSend(update("b", "0", TOPIC, false), null));
+		assertNull(throttle.preSend(update("a", "0", TOPIC, false), null));
+	}
+
+	@Test
+	void subscribersMayAskForALongerInterval() {
+		AnalysisThrottle throttle = new AnalysisThrottle(0);
+		throttle.preSend(subscribe("a", "0", null), null);
+		throttle.preSend(subscribe("b", "0", "60000"), null);
+		for (int i = 0; i < 2; i++) {
+			assertNotNull(throttle.preSend(update("a", "0", TOPIC, false), null));
+		}
+		assertNotNull(throttle.preSend(update("b", "0", TOPIC, false), null));
+		assertNull(throttle.preSend(update("b", "0", TOPIC, false), null));
+	}
+
+	@Test
+	void otherTopicsAreNotThrottled() {
+		AnalysisThrottle throttle = new AnalysisThrottle(60_000);
+		for (int i = 0; i < 2; i++) {
+			assertNotNull(throttle.preSend(update("a", "0", "/topic/game/1", false), null));
+		}
+	}
+}
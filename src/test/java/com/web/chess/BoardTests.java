@@ -0,0 +1,101 @@
+package com.web.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveList;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class BoardTests {
+
+	private static Board board(String fen) {
+		return new Board(fen);
+	}
+
+	/**
+	 * Returns the squares the GUI would highlight for the piece at row, col, as "rc" strings.
+	 */
+	private static Set<String> clicks(Board board, int row, int col) {
+		MoveList moves = new MoveList();
+		board.legalMoves(row, col, moves);
+		Set<String> squares = new HashSet<>();
+		for (int i = 0; i < moves.size(); i++) {
+			int square = board.clickSquare(moves.get(i));
+			squares.add((square >> 3) + "" + (square & 7));
+		}
+		return squares;
+	}
+
+	@Test
+	void knightMovesFromStart() {
+		Board board = board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		assertEquals(Set.of("55", "57"), clicks(board, 7, 6));
+	}
+
+	@Test
+	void pawnPushesFromStart() {
+		Board board = board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		assertEquals(Set.of("54", "44"), clicks(board, 6, 4));
+	}
+
+	@Test
+	void pinnedPawnCanOnlyCaptureAlongPin() {
+		// Pinned, can capture: k7/8/8/8/8/5b/6P1/7K w KQkq - 0 1
+		Board board = board("k7/8/8/8/8/5b/6P1/7K w - - 0 1");
+		assertEquals(Set.of("55"), clicks(board, 6, 6));
+	}
+
+	@Test
+	void castlingIsSelectedOnTheRook() {
+		Board board = board("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		Set<String> moves = clicks(board, 7, 4);
+		assertTrue(moves.contains("77"));
+		assertTrue(moves.contains("70"));
+		MoveList legal = new MoveList();
+		board.legalMoves(7, 4, legal);
+		int castle = board.findMove(legal, 7, 7);
+		assertEquals(Move.CASTLE, Move.flags(castle));
+		assertEquals(62, Move.to(castle));
+		board.makeMove(castle);
+		assertEquals("b", board.getTurn());
+	}
+
+	@Test
+	void enPassantAfterDoublePush() {
+		Board board = board("4k3/4p3/8/3P4/8/8/8/4K3 b - - 0 1");
+		MoveList legal = new MoveList();
+		board.legalMoves(1, 4, legal);
+		board.makeMove(board.findMove(legal, 3, 4));
+		assertEquals(Set.of("23", "24"), clicks(board, 3, 3));
+	}
+
+	@Test
+	void onlyEvasionsWhileInCheck() {
+		Board board = board("4k3/8/8/8/8/8/3Q4/r3K3 w - - 0 1");
+		assertEquals(1, board.detectChecks(-1));
+		assertEquals(Set.of("73", "72"), clicks(board, 6, 3));
+	}
+
+	@Test
+	void checkmateNeedsEveryEscapeCovered() {
+		// Back rank mate, and the same with a rook that can block
+		assertTrue(board("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1").detectCheckmate(1));
+		assertFalse(board("R5k1/5ppp/8/8/8/8/2r5/6K1 b - - 0 1").detectCheckmate(1));
+		// Double check can only be answered by the king
+		assertTrue(board("4k3/4r3/8/8/8/5np1/8/r3K3 w - - 0 1").detectCheckmate(-1));
+	}
+
+	@Test
+	void stalemateOnlyWithoutCheck() {
+		Board board = board("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertTrue(board.detectStalemate(1));
+		assertFalse(board.detectCheckmate(1));
+		// En passant is the only move
+		assertFalse(board("8/8/8/8/3Pp3/1Q2P3/8/k1K5 b - d3 0 1").detectStalemate(1));
+		assertTrue(board("8/8/8/8/3Pp3/1Q2P3/8/k1K5 b - - 0 1").detectStalemate(1));
+	}
+}
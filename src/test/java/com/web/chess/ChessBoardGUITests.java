@@ -0,0 +1,131 @@
+package com.web.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.engine.Move;
+import com.web.chess.engine.Position;
+import com.web.chess.models.ClickResponse;
+import com.web.chess.models.GameMode;
+import com.web.chess.models.Player;
+import com.web.chess.services.BoardToJSON;
+import org.junit.jupiter.api.Test;
+
+class ChessBoardGUITests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static ChessBoardGUI game(String fen) {
+		ChessBoardGUI game = new ChessBoardGUI(new Player());
+		game.setupBoard(fen);
+		game.startGame();
+		return game;
+	}
+
+	/**
+	 * Clicks a piece and then its destination, as the side to move.
+	 */
+	private static void play(ChessBoardGUI game, int color, int fromRow, int fromCol, int toRow, int toCol) {
+		game.buttonPress(fromRow, fromCol, color);
+		game.buttonPress(toRow, toCol, color);
+	}
+
+	@Test
+	void selectingAPieceHighlightsItsMoves() {
+		ChessBoardGUI game = game(START);
+		game.buttonPress(6, 4, -1);
+		ClickResponse response = BoardToJSON.clickToJSON(game);
+		assertTrue(response.highlights[6][4]);
+		assertTrue(response.highlights[5][4]);
+		assertTrue(response.highlights[4][4]);
+		assertFalse(response.highlights[3][4]);
+		assertEquals("WHITE_SELECT", response.gamestate);
+	}
+
+	@Test
+	void movesAreShownFromThePosition() {
+		ChessBoardGUI game = game(START);
+		play(game, -1, 6, 4, 4, 4);
+		ClickResponse response = BoardToJSON.clickToJSON(game);
+		assertEquals("/whitepawn.png", response.boardstate[4][4]);
+		assertEquals("Empty", response.boardstate[6][4]);
+		assertFalse(response.highlights[4][4]);
+		assertEquals("BLACK", response.gamestate);
+	}
+
+	@Test
+	void castlingMovesTheRook() {
+		ChessBoardGUI game = game("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		play(game, -1, 7, 4, 7, 7);
+		ClickResponse response = BoardToJSON.clickToJSON(game);
+		assertEquals("/whiteking.png", response.boardstate[7][6]);
+		assertEquals("/whiterook.png", response.boardstate[7][5]);
+		assertEquals("Empty", response.boardstate[7][7]);
+	}
+
+	@Test
+	void scholarsMate() {
+		ChessBoardGUI game = game(START);
+		play(game, -1, 6, 4, 4, 4);
+		play(game, 1, 1, 4, 3, 4);
+		play(game, -1, 7, 5, 4, 2);
+		play(game, 1, 0, 1, 2, 2);
+		play(game, -1, 7, 3, 3, 7);
+		play(game, 1, 0, 6, 2, 5);
+		play(game, -1, 3, 7, 1, 5);
+		assertEquals(ChessBoardGUI.gamestate.CHECKMATE, game.currentGamestate);
+	}
+
+	@Test
+	void takingTheLastPawnIsADraw() {
+		// Kxd5 leaves bare kings
+		ChessBoardGUI game = game("8/8/8/3p4/4K3/8/8/7k w - - 0 1");
+		play(game, -1, 4, 4, 3, 3);
+		assertEquals("DRAW", BoardToJSON.clickToJSON(game).gamestate);
+	}
+
+	@Test
+	void takingDownToALoneKnightIsADraw() {
+		// Kxd5 leaves king and knight against a bare king
+		ChessBoardGUI game = game("8/8/8/3p4/4K3/8/8/N6k w - - 0 1");
+		play(game, -1, 4, 4, 3, 3);
+		assertEquals("DRAW", BoardToJSON.clickToJSON(game).gamestate);
+	}
+
+	@Test
+	void drawnPawnEndingsArePlayedOut() {
+		// Drawn with best play after Kd1, but black can still go wrong
+		ChessBoardGUI game = game("8/8/8/8/8/4k3/4P3/5K2 w - - 0 1");
+		play(game, -1, 7, 5, 7, 4);
+		assertEquals("BLACK", BoardToJSON.clickToJSON(game).gamestate);
+	}
+
+	@Test
+	void emptyBeforeSetup() {
+		ClickResponse response = BoardToJSON.clickToJSON(new ChessBoardGUI(new Player()));
+		assertEquals("Empty", response.boardstate[0][0]);
+		assertEquals("INACTIVE", response.gamestate);
+	}
+
+	@Test
+	void engineGameWaitsForTheEngine() {
+		ChessBoardGUI game = new ChessBoardGUI(new Player(), GameMode.ENGINE);
+		game.setupBoard(START);
+		game.startGame();
+		assertFalse(game.isEngineTurn());
+		play(game, -1, 6, 4, 4, 4);
+		assertTrue(game.isEngineTurn());
+		// The human cannot move the engine's pieces
+		play(game, 1, 1, 4, 3, 4);
+		assertEquals("/blackpawn.png", BoardToJSON.clickToJSON(game).boardstate[1][4]);
+
+		Position position = game.positionCopy();
+		int reply = Move.encode(12, 28, Move.DOUBLE_PUSH, 0);
+		// A reply for a position that is no longer current is dropped
+		assertFalse(game.playEngineMove(reply, position.key() ^ 1));
+		assertTrue(game.playEngineMove(reply, position.key()));
+		assertEquals("/blackpawn.png", BoardToJSON.clickToJSON(game).boardstate[3][4]);
+		assertEquals(ChessBoardGUI.gamestate.WHITE, game.currentGamestate);
+	}
+}
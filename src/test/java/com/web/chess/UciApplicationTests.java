@@ -0,0 +1,92 @@
+package com.web.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.engine.Position;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class UciApplicationTests {
+
+	/**
+	 * Runs the commands, one per line, to the end of the input and returns the lines printed.
+	 */
+	private static List<String> run(String... commands) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+		new UciApplication(new BufferedReader(new StringReader(String.join("\n", commands))), out).run();
+		return output.toString(StandardCharsets.UTF_8).lines().toList();
+	}
+
+	private static String bestMove(List<String> lines) {
+		String last = lines.get(lines.size() - 1);
+		assertTrue(last.startsWith("bestmove "), last);
+		return last.split(" ")[1];
+	}
+
+	private static boolean isLegal(Position position, String text) {
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			if (Move.toString(moves.get(i)).equals(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	void handshake() throws IOException {
+		List<String> lines = run("uci", "isready");
+		assertTrue(lines.contains("uciok"));
+		assertEquals("readyok", lines.get(lines.size() - 1));
+		assertTrue(lines.indexOf("uciok") < lines.indexOf("readyok"));
+	}
+
+	@Test
+	void searchesThePositionAfterTheMoves() throws IOException {
+		List<String> lines = run("position startpos moves e2e4 e7e5 g1f3", "go depth 4");
+		Position position = Position.fromFen(UciApplication.START_FEN);
+		position.makeMove(Move.encode(52, 36, Move.DOUBLE_PUSH, 0));
+		position.makeMove(Move.encode(12, 28, Move.DOUBLE_PUSH, 0));
+		position.makeMove(Move.encode(62, 45, 0, 0));
+		assertTrue(isLegal(position, bestMove(lines)));
+		assertTrue(lines.stream().anyMatch(line -> line.startsWith("info depth 4 multipv 1 score cp ")));
+	}
+
+	@Test
+	void findsTheMate() throws IOException {
+		List<String> lines = run("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", "go depth 3");
+		assertEquals("a1a8", bestMove(lines));
+		assertTrue(lines.stream().anyMatch(line -> line.contains(" score mate 1 ")));
+	}
+
+	@Test
+	void reportsIllegalMovesAndKeepsThePosition() throws IOException {
+		List<String> lines = run("position startpos moves e2e5", "go depth 1");
+		assertTrue(lines.contains("info string Illegal move: e2e5"));
+		assertTrue(isLegal(Position.fromFen(UciApplication.START_FEN), bestMove(lines)));
+	}
+
+	@Test
+	void infiniteSearchWaitsForStop() throws IOException {
+		List<String> lines = run("setoption name Hash value 1", "go infinite", "stop");
+		assertTrue(isLegal(Position.fromFen(UciApplication.START_FEN), bestMove(lines)));
+	}
+
+	@Test
+	void reportsSeveralLines() throws IOException {
+		List<String> lines = run("setoption name MultiPV value 3", "go depth 3");
+		assertTrue(lines.stream().anyMatch(line -> line.startsWith("info depth 3 multipv 3 ")));
+	}
+}
@@ -0,0 +1,72 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class AttackMapTests {
+
+	/**
+	 * Rebuilds the attacked squares of a color one square at a time, ignoring the cache.
+	 */
+	private static long scan(Position position, int color) {
+		long result = 0;
+		for (int sq = 0; sq < 64; sq++) {
+			if (position.attackersTo(sq, color, position.occupied()) != 0) {
+				result |= 1L << sq;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Walks every line to the given depth and checks the cached attacks against a full scan, and
+	 * that unmakeMove gives back the pins the position had before the move.
+	 */
+	private static void walk(Position position, int depth) {
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			assertEquals(scan(position, color), position.attacks(color));
+		}
+		if (depth == 0) {
+			return;
+		}
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			long white = position.pinned(Position.WHITE);
+			long black = position.pinned(Position.BLACK);
+			position.makeMove(moves.get(i));
+			walk(position, depth - 1);
+			position.unmakeMove();
+			assertEquals(white, position.pinned(Position.WHITE));
+			assertEquals(black, position.pinned(Position.BLACK));
+			assertEquals(scan(position, Position.WHITE), position.attacks(Position.WHITE));
+		}
+	}
+
+	@Test
+	void cachedAttacksMatchAFullScan() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			walk(Position.fromFen(reference.fen()), 3);
+		}
+	}
+
+	@Test
+	void pinsFollowTheKingLines() {
+		Position position = Position.fromFen("4k3/4r3/8/8/8/8/4N3/4K3 w - - 0 1");
+		assertEquals(1L << 52, position.pinned(Position.WHITE));
+		// Moving the king off the file releases the knight
+		position.makeMove(60, 59, 0);
+		assertEquals(0, position.pinned(Position.WHITE));
+		position.unmakeMove();
+		assertEquals(1L << 52, position.pinned(Position.WHITE));
+	}
+
+	@Test
+	void kingCannotStepAlongTheCheckingLine() {
+		Position position = Position.fromFen("4k3/8/8/8/8/8/8/r3K3 w - - 0 1");
+		long targets = MoveGenerator.legalTargets(position, 60);
+		assertEquals(0, targets & (1L << 61));
+		assertEquals((1L << 51) | (1L << 52) | (1L << 53), targets);
+	}
+}
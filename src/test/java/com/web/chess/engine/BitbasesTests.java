@@ -0,0 +1,101 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BitbasesTests {
+
+	private static int probe(String fen) {
+		return Bitbases.probe(Position.fromFen(fen));
+	}
+
+	@Test
+	void pawnEndings() {
+		// King on the sixth in front of the pawn wins whoever moves
+		assertEquals(Bitbases.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"));
+		assertEquals(Bitbases.LOSS, probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+		// Stalemate
+		assertEquals(Bitbases.DRAW, probe("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1"));
+		// Defending king in front of the pawn
+		assertEquals(Bitbases.DRAW, probe("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1"));
+		// Rook pawn with the defender in the corner
+		assertEquals(Bitbases.DRAW, probe("k7/8/K7/P7/8/8/8/8 w - - 0 1"));
+	}
+
+	@Test
+	void blackPawnsAreMirrored() {
+		assertEquals(Bitbases.WIN, probe("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1"));
+		assertEquals(Bitbases.LOSS, probe("8/8/8/8/4p3/4k3/8/4K3 w - - 0 1"));
+		assertEquals(Bitbases.DRAW, probe("4k3/4p3/8/8/8/8/8/4K3 w - - 0 1"));
+	}
+
+	@Test
+	void rookAndQueenEndings() {
+		assertEquals(Bitbases.WIN, probe("k7/8/1K6/8/8/8/8/7R w - - 0 1"));
+		assertEquals(Bitbases.LOSS, probe("k6R/8/1K6/8/8/8/8/8 b - - 0 1"));
+		// Stalemate, and an undefended rook next to the king
+		assertEquals(Bitbases.DRAW, probe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1"));
+		assertEquals(Bitbases.DRAW, probe("8/8/8/8/8/8/1kR5/7K b - - 0 1"));
+		assertEquals(Bitbases.WIN, probe("8/8/8/8/8/8/1kr5/7K b - - 0 1"));
+	}
+
+	@Test
+	void otherMaterialIsNotCovered() {
+		assertEquals(Bitbases.DRAW, probe("8/8/8/8/8/2k5/8/4K3 w - - 0 1"));
+		assertEquals(Bitbases.UNKNOWN, probe("8/8/8/8/8/2k5/8/2N1K3 w - - 0 1"));
+		assertEquals(Bitbases.UNKNOWN, probe("8/8/8/8/8/2k5/7p/3QK3 w - - 0 1"));
+		assertFalse(Bitbases.covers(Position.fromFen(Perft.REFERENCES.get(0).fen())));
+	}
+
+	@Test
+	void rookAndQueenWinWheneverTheStrongSideMoves() {
+		for (int type : new int[] {Position.ROOK, Position.QUEEN}) {
+			long[] table = Bitbases.generate(type, null, null);
+			for (int index = 0; index < 1 << 18; index++) {
+				int strongKing = (index >>> 12) & 63;
+				int weakKing = (index >>> 6) & 63;
+				int piece = index & 63;
+				if (strongKing == weakKing || piece == strongKing || piece == weakKing
+						|| (Bitboards.KING_ATTACKS[strongKing] & (1L << weakKing)) != 0
+						|| (Bitboards.queenAttacks(piece, 1L << strongKing) & (1L << weakKing)) != 0) {
+					continue;
+				}
+				assertTrue((table[index >>> 6] & (1L << index)) != 0, "type " + type + " index " + index);
+			}
+		}
+	}
+
+	@Test
+	void tablesRoundTripThroughAFile(@TempDir Path dir) throws IOException {
+		long[] table = Bitbases.generate(Position.ROOK, null, null);
+		Path file = dir.resolve("krk.bin");
+		Bitbases.write(file, Position.ROOK, table);
+		assertArrayEquals(table, Bitbases.read(file, Position.ROOK));
+		assertThrows(IOException.class, () -> Bitbases.read(file, Position.QUEEN));
+		Files.write(file, new byte[16]);
+		assertThrows(IOException.class, () -> Bitbases.read(file, Position.ROOK));
+	}
+
+	@Test
+	void searchKeepsTheWin() {
+		// Only Kd6 and Kf6 keep the pawn ending won
+		SearchResult result = new Search(new TranspositionTable(1))
+				.search(Position.fromFen("4k3/8/8/4K3/4P3/8/8/8 w - - 0 1"), SearchLimits.depth(6));
+		assertEquals(Bitbases.LOSS, probeAfter("4k3/8/8/4K3/4P3/8/8/8 w - - 0 1", result.move()));
+	}
+
+	private static int probeAfter(String fen, int move) {
+		Position position = Position.fromFen(fen);
+		position.makeMove(move);
+		return Bitbases.probe(position);
+	}
+}
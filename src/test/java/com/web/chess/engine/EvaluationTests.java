@@ -0,0 +1,93 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class EvaluationTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * Plays every legal move to the given depth and checks the incremental evaluation terms
+	 * against a full scan of the board, and the pawn table against scoring the pawns directly.
+	 */
+	private static void walk(Position position, PawnTable pawns, int depth) {
+		int middlegame = 0;
+		int endgame = 0;
+		int phase = 0;
+		long pawnKey = 0;
+		for (int sq = 0; sq < 64; sq++) {
+			int code = position.pieceAt(sq);
+			if (code != Position.EMPTY) {
+				middlegame += Evaluation.MIDDLEGAME[code][sq];
+				endgame += Evaluation.ENDGAME[code][sq];
+				phase += Evaluation.PHASE[code % 6];
+				pawnKey ^= code % 6 == Position.PAWN ? Zobrist.PIECES[code][sq] : 0;
+			}
+		}
+		assertEquals(middlegame, position.middlegame());
+		assertEquals(endgame, position.endgame());
+		assertEquals(phase, position.phase());
+		assertEquals(pawnKey, position.pawnKey());
+		assertEquals(Evaluation.evaluate(position), Evaluation.evaluate(position, pawns));
+		if (depth == 0) {
+			return;
+		}
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			position.makeMove(moves.get(i));
+			walk(position, pawns, depth - 1);
+			position.unmakeMove();
+		}
+	}
+
+	@Test
+	void incrementalTermsMatchAFullScan() {
+		// A small table, so that slots are overwritten
+		PawnTable pawns = new PawnTable(64);
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			walk(Position.fromFen(reference.fen()), pawns, 2);
+		}
+	}
+
+	@Test
+	void startingPositionIsLevel() {
+		Position position = Position.fromFen(START);
+		assertEquals(Evaluation.MAX_PHASE, position.phase());
+		assertEquals(0, Evaluation.evaluate(position));
+	}
+
+	@Test
+	void scoresAreForTheSideToMove() {
+		String fen = "4k3/8/8/8/8/8/4P3/4K3 ";
+		assertEquals(Evaluation.evaluate(Position.fromFen(fen + "w - - 0 1")),
+				-Evaluation.evaluate(Position.fromFen(fen + "b - - 0 1")));
+	}
+
+	@Test
+	void packedScoresRoundTrip() {
+		int[] values = {0, 1, -1, 250, -250, 4000, -4000};
+		for (int middlegame : values) {
+			for (int endgame : values) {
+				int packed = Evaluation.pack(middlegame, endgame);
+				assertEquals(middlegame, Evaluation.middlegame(packed));
+				assertEquals(endgame, Evaluation.endgame(packed));
+			}
+		}
+	}
+
+	@Test
+	void passedPawnsCountMoreInTheEndgame() {
+		// The e-pawn is passed in both; with the queens on, the bonus is tapered towards its
+		// middlegame value
+		int endgame = Evaluation.evaluate(Position.fromFen("4k3/8/8/4P3/8/8/8/4K3 w - - 0 1"));
+		int middlegame = Evaluation.evaluate(Position.fromFen("3qk3/8/8/4P3/8/8/8/3QK3 w - - 0 1"));
+		assertTrue(endgame > middlegame, endgame + " vs " + middlegame);
+		// Blocked by a pawn on the next file ahead, the pawn is no longer passed
+		int blocked = Evaluation.evaluate(Position.fromFen("4k3/3p4/8/4P3/8/8/8/4K3 w - - 0 1"));
+		assertTrue(endgame - blocked > Evaluation.VALUES[Position.PAWN], endgame + " vs " + blocked);
+	}
+}
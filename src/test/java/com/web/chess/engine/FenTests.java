@@ -0,0 +1,99 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class FenTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static void assertInvalid(String fen, int index, String reason) {
+		FenException exception = assertThrows(FenException.class, () -> Fen.parse(fen));
+		assertEquals(index, exception.index());
+		assertEquals(reason + " (at character " + index + ")", exception.getMessage());
+	}
+
+	@Test
+	void referencePositionsRoundTrip() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			assertEquals(reference.fen(), Fen.toFen(Fen.parse(reference.fen())));
+		}
+	}
+
+	@Test
+	void positionsAfterMovesRoundTrip() {
+		// Reusing one position for every parse, as bulk loading does
+		Position parsed = new Position();
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			Position position = Position.fromFen(reference.fen());
+			MoveList moves = new MoveList();
+			MoveGenerator.generateLegal(position, moves);
+			for (int i = 0; i < moves.size(); i++) {
+				position.makeMove(moves.get(i));
+				String fen = position.toFen();
+				Fen.parse(fen, parsed);
+				assertEquals(fen, parsed.toFen());
+				assertEquals(position.key(), parsed.key());
+				assertEquals(position.pawnKey(), parsed.pawnKey());
+				assertEquals(position.middlegame(), parsed.middlegame());
+				assertEquals(0, parsed.undoCount());
+				position.unmakeMove();
+			}
+		}
+	}
+
+	@Test
+	void lenientInput() {
+		// Short ranks are padded, the counters are optional and extra spaces are ignored
+		assertEquals("2k5/4r3/8/8/8/8/4R3/4K3 w - - 0 1", Fen.toFen(Fen.parse("2k/4r/8/8/8/8/4R/4K w - -")));
+		assertEquals(START, Fen.toFen(Fen.parse("  rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR  w KQkq -  0 1 ")));
+		// Rights without their king and rook are dropped
+		assertEquals("4k3/8/8/8/8/8/8/4K2R w K - 3 40", Fen.toFen(Fen.parse("4k3/8/8/8/8/8/8/4K2R w KQkq - 3 40")));
+	}
+
+	@Test
+	void readStopsAfterTheFen() {
+		String epd = "4k3/8/8/8/8/8/8/4K2R w K - bm Rh8+;";
+		Position position = new Position();
+		int end = Fen.read(epd, 0, epd.length(), position);
+		assertEquals(" bm Rh8+;", epd.substring(end));
+		assertInvalid(epd, 27, "Unexpected text after the FEN");
+	}
+
+	@Test
+	void invalidPlacement() {
+		assertInvalid("", 0, "Missing piece placement");
+		assertInvalid("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1", 34, "Expected 8 ranks, found 7");
+		assertInvalid("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/8 w KQkq - 0 1", 43, "More than 8 ranks");
+		assertInvalid("rnbqkbnr/pppppppp/8/44P/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 22, "Rank 5 has more than 8 squares");
+		assertInvalid("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1", 42, "Invalid piece 'X'");
+		assertInvalid("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1BNR w kq - 0 1", 0, "White has no king");
+		assertInvalid("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBKKBNR w kq - 0 1", 39, "White has more than one king");
+		assertInvalid("rnbqkbnP/pppppppp/8/8/8/8/PPPPPPP1/RNBQKBNR w KQq - 0 1", 7, "Pawn on rank 8");
+	}
+
+	@Test
+	void invalidFields() {
+		assertInvalid("4k3/8/8/8/8/8/8/4K3", 19, "Missing side to move");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 x - - 0 1", 20, "Side to move must be 'w' or 'b'");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 white - - 0 1", 20, "Side to move must be 'w' or 'b'");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w KK - 0 1", 23, "Castling right 'K' given twice");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w A - 0 1", 22, "Invalid castling right 'A'");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w -K - 0 1", 23, "Invalid castling rights");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - e9 0 1", 24, "Invalid en passant square");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - e3 0 1", 24, "En passant square must be on rank 6 with white to move");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - e6 0 1", 24, "No black pawn just moved past the en passant square");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - - x 1", 26, "Unexpected text after the FEN");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - - 0x 1", 26, "Invalid halfmove clock");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - - 0", 27, "Missing fullmove number");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - - 0 -1", 28, "Invalid fullmove number");
+		assertInvalid("4k3/8/8/8/8/8/8/4K3 w - - 99999999 1", 26, "Halfmove clock is too large");
+	}
+
+	@Test
+	void sideNotToMoveInCheck() {
+		assertInvalid("4k3/8/8/8/8/8/8/4K2r b - - 0 1", 21, "White is in check with black to move");
+	}
+}
@@ -0,0 +1,62 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MagicsTests {
+
+	@Test
+	void lookupsMatchRayWalks() {
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 2000; i++) {
+			// Sparse and dense boards
+			long occupied = i % 2 == 0 ? random.nextLong() & random.nextLong() : random.nextLong();
+			for (int sq = 0; sq < 64; sq++) {
+				long rook = 0;
+				long bishop = 0;
+				for (int d = 0; d < 4; d++) {
+					rook |= Bitboards.rayAttacks(d, sq, occupied);
+					bishop |= Bitboards.rayAttacks(d + 4, sq, occupied);
+				}
+				assertEquals(rook, Magics.rookAttacks(sq, occupied));
+				assertEquals(bishop, Magics.bishopAttacks(sq, occupied));
+			}
+		}
+	}
+
+	@Test
+	void generationIsDeterministic() {
+		assertArrayEquals(Magics.findMagics(), Magics.findMagics());
+	}
+
+	@Test
+	void tablesRoundTripThroughAFile(@TempDir Path dir) throws IOException {
+		long[] magics = Magics.findMagics();
+		long[] attacks = Magics.fillAttacks(magics);
+		Path file = dir.resolve("magics.bin");
+		Magics.write(file, magics, attacks);
+		long[][] read = Magics.read(file);
+		assertArrayEquals(magics, read[0]);
+		assertArrayEquals(attacks, read[1]);
+	}
+
+	@Test
+	void corruptFilesAreRejected(@TempDir Path dir) throws IOException {
+		long[] magics = Magics.findMagics();
+		long[] attacks = Magics.fillAttacks(magics);
+		attacks[0] ^= 1;
+		Path file = dir.resolve("magics.bin");
+		Magics.write(file, magics, attacks);
+		assertThrows(IOException.class, () -> Magics.read(file));
+		Files.write(file, new byte[16]);
+		assertThrows(IOException.class, () -> Magics.read(file));
+	}
+}
@@ -0,0 +1,51 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MoveGeneratorTests {
+
+	/**
+	 * Walks every line to the given depth and checks hasLegalMove against the full generator for
+	 * both colors.
+	 */
+	private static void walk(Position position, int depth) {
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		int us = position.sideToMove();
+		assertEquals(!moves.isEmpty(), MoveGenerator.hasLegalMove(position, us));
+		boolean other = false;
+		long pieces = position.colorOccupancy(us ^ 1);
+		while (pieces != 0) {
+			other |= MoveGenerator.legalTargets(position, Long.numberOfTrailingZeros(pieces)) != 0;
+			pieces &= pieces - 1;
+		}
+		assertEquals(other, MoveGenerator.hasLegalMove(position, us ^ 1));
+		if (depth == 0) {
+			return;
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			position.makeMove(moves.get(i));
+			walk(position, depth - 1);
+			position.unmakeMove();
+		}
+	}
+
+	@Test
+	void hasLegalMoveMatchesTheGenerator() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			walk(Position.fromFen(reference.fen()), 3);
+		}
+	}
+
+	@Test
+	void noMovesInMateOrStalemate() {
+		assertFalse(MoveGenerator.hasLegalMove(
+				Position.fromFen("r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4"), Position.BLACK));
+		assertFalse(MoveGenerator.hasLegalMove(Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), Position.BLACK));
+		assertTrue(MoveGenerator.hasLegalMove(Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), Position.WHITE));
+	}
+}
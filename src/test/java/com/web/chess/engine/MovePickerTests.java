@@ -0,0 +1,120 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MovePickerTests {
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	/**
+	 * Walks every line to the given depth and checks that the noisy and quiet generators split
+	 * the legal moves between them, that every legal move passes isLegal, and that a picker
+	 * hands out each legal move exactly once.
+	 */
+	private static void walk(Position position, int depth) {
+		MoveList legal = new MoveList();
+		MoveGenerator.generateLegal(position, legal);
+		Set<Integer> expected = new HashSet<>();
+		for (int i = 0; i < legal.size(); i++) {
+			expected.add(legal.get(i));
+			assertTrue(MoveGenerator.isLegal(position, legal.get(i)));
+		}
+		MoveList noisy = new MoveList();
+		MoveList quiet = new MoveList();
+		MoveGenerator.generateNoisy(position, noisy);
+		MoveGenerator.generateQuiet(position, quiet);
+		assertEquals(legal.size(), noisy.size() + quiet.size());
+		for (int i = 0; i < noisy.size(); i++) {
+			int move = noisy.get(i);
+			assertTrue(expected.contains(move));
+			assertTrue(Move.isCapture(move) || Move.promotion(move) != 0);
+		}
+
+		MovePicker picker = new MovePicker();
+		int hashMove = legal.isEmpty() ? Move.NONE : legal.get(legal.size() - 1);
+		picker.init(position, hashMove, legal.isEmpty() ? Move.NONE : legal.get(0), Move.NONE, new int[12][64]);
+		Set<Integer> picked = new HashSet<>();
+		int first = picker.next();
+		assertEquals(hashMove, first);
+		for (int move = first; move != Move.NONE; move = picker.next()) {
+			assertTrue(picked.add(move), Move.toString(move));
+		}
+		assertEquals(expected, picked);
+		if (depth == 0) {
+			return;
+		}
+		for (int i = 0; i < legal.size(); i++) {
+			position.makeMove(legal.get(i));
+			walk(position, depth - 1);
+			position.unmakeMove();
+		}
+	}
+
+	@Test
+	void picksEveryLegalMoveOnce() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			walk(Position.fromFen(reference.fen()), 2);
+		}
+	}
+
+	@Test
+	void illegalHashAndKillerMovesAreSkipped() {
+		Position position = Position.fromFen(KIWIPETE);
+		int illegal = Move.encode(48, 32, Move.DOUBLE_PUSH | Move.CAPTURE, 0);
+		assertFalse(MoveGenerator.isLegal(position, illegal));
+		MovePicker picker = new MovePicker();
+		picker.init(position, illegal, illegal, Move.NONE, new int[12][64]);
+		int count = 0;
+		for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+			assertTrue(move != illegal);
+			count++;
+		}
+		assertEquals(48, count);
+	}
+
+	@Test
+	void losingCapturesAreLeftOutOfQuiescence() {
+		// Qxa5 wins a knight for nothing, Qxe6 gives the queen for a rook and is left out of the
+		// quiescence search
+		Position position = Position.fromFen("4k3/3p4/4r3/n7/8/8/8/4QK2 w - - 0 1");
+		MovePicker picker = new MovePicker();
+		picker.initNoisy(position, new int[12][64]);
+		assertEquals("e1a5", Move.toString(picker.next()));
+		assertEquals(Move.NONE, picker.next());
+	}
+
+	@Test
+	void queenPromotionSortsBeforeTakingAQueen() {
+		// b8=Q gains a queen for a pawn, Rxh5 a queen with a rook: the promotion comes first,
+		// and only the queen promotion is searched in quiescence
+		Position position = Position.fromFen("6k1/1P6/8/7q/8/8/8/K6R w - - 0 1");
+		MovePicker picker = new MovePicker();
+		picker.initNoisy(position, new int[12][64]);
+		assertEquals("b7b8q", Move.toString(picker.next()));
+		assertEquals("h1h5", Move.toString(picker.next()));
+		assertEquals(Move.NONE, picker.next());
+	}
+
+	@Test
+	void staticExchange() {
+		// A pawn takes a defended knight: wins a knight for a pawn
+		assertEquals(220, see("4k3/8/2p5/3n4/4P3/8/8/4K3 w - - 0 1", 36, 27));
+		// The queen takes a pawn defended by a pawn
+		assertEquals(100 - 900, see("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1", 59, 27));
+		// The rook takes a pawn defended by a rook, backed up by a second rook on the file
+		assertEquals(100, see("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", 51, 27));
+		// An undefended piece
+		assertEquals(320, see("4k3/8/8/3n4/8/8/8/3RK3 w - - 0 1", 59, 27));
+	}
+
+	private static int see(String fen, int from, int to) {
+		Position position = Position.fromFen(fen);
+		return MovePicker.see(position, Move.encode(from, to, Move.CAPTURE, 0));
+	}
+}
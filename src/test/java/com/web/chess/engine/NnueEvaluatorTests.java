@@ -0,0 +1,96 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NnueEvaluatorTests {
+
+	private static final Network NETWORK = Network.random(64, 1);
+
+	/**
+	 * Plays every legal move to the given depth through the evaluator, checking its incremental
+	 * accumulators against an evaluator started on the position, and the scalar kernels against
+	 * the Vector API when the build has it.
+	 */
+	private static void walk(Position position, NnueEvaluator incremental, NnueEvaluator scalar, int depth) {
+		NnueEvaluator fresh = new NnueEvaluator(NETWORK);
+		fresh.reset(position);
+		int score = fresh.evaluate(position);
+		assertEquals(score, incremental.evaluate(position));
+		assertEquals(score, scalar.evaluate(position));
+		if (depth == 0) {
+			return;
+		}
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			incremental.makeMove(position, moves.get(i));
+			scalar.makeMove(position, moves.get(i));
+			position.makeMove(moves.get(i));
+			walk(position, incremental, scalar, depth - 1);
+			position.unmakeMove();
+			incremental.unmakeMove();
+			scalar.unmakeMove();
+		}
+	}
+
+	@Test
+	void incrementalUpdatesMatchRefresh() {
+		// Set by the vector profile, whose build must not quietly fall back to the scalar kernels
+		assertEquals(Boolean.getBoolean("chess.vector"), NETWORK.vectorized());
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			Position position = Position.fromFen(reference.fen());
+			NnueEvaluator incremental = new NnueEvaluator(NETWORK);
+			NnueEvaluator scalar = new NnueEvaluator(NETWORK.scalar());
+			incremental.reset(position);
+			scalar.reset(position);
+			walk(position, incremental, scalar, 2);
+		}
+	}
+
+	@Test
+	void scoresAreFromTheSideToMove() {
+		Position white = Position.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+		Position black = Position.fromFen("4k3/4p3/8/8/8/8/8/4K3 b - - 0 1");
+		NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+		evaluator.reset(white);
+		int score = evaluator.evaluate(white);
+		evaluator.reset(black);
+		// The same position with the colours swapped
+		assertEquals(score, evaluator.evaluate(black));
+	}
+
+	@Test
+	void writtenNetworkReadsBack(@TempDir Path directory) throws IOException {
+		Path file = directory.resolve("net.nnue");
+		NETWORK.write(file);
+		Network loaded = Network.load(file);
+		assertEquals(NETWORK.hiddenSize(), loaded.hiddenSize());
+		Position position = Position.fromFen(Perft.REFERENCES.get(1).fen());
+		NnueEvaluator original = new NnueEvaluator(NETWORK);
+		NnueEvaluator copy = new NnueEvaluator(loaded);
+		original.reset(position);
+		copy.reset(position);
+		assertEquals(original.evaluate(position), copy.evaluate(position));
+
+		Files.write(file, new byte[]{1, 2, 3, 4});
+		assertThrows(IOException.class, () -> Network.load(file));
+	}
+
+	@Test
+	void searchesWithTheNetwork() {
+		Search search = new Search(new TranspositionTable(1), new NnueEvaluator(NETWORK));
+		Position position = Position.fromFen(Perft.REFERENCES.get(0).fen());
+		SearchResult result = search.search(position, SearchLimits.depth(4));
+		assertNotEquals(Move.NONE, result.move());
+		assertTrue(MoveGenerator.isLegal(position, result.move()));
+	}
+}
@@ -0,0 +1,57 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelSearchTests {
+
+	private static final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+	@AfterAll
+	static void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void findsMateInTwoWithHelpers() {
+		ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 4);
+		SearchResult result = search.search(
+				Position.fromFen("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1"),
+				SearchLimits.depth(5), executor);
+		assertEquals("d5f6", Move.toString(result.move()));
+		assertEquals(Search.MATE - 3, result.score());
+	}
+
+	@Test
+	void helpersStopWithTheMainSearch() {
+		// The helpers have no budget of their own, so this only returns if they are stopped
+		ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3);
+		SearchResult result = search.search(Position.fromFen(Perft.REFERENCES.get(1).fen()),
+				new SearchLimits(64, 20_000, 0), executor);
+		assertTrue(result.move() != Move.NONE);
+		assertTrue(result.nodes() >= 20_000, "nodes " + result.nodes());
+	}
+
+	@Test
+	void canBeReused() {
+		ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2);
+		Position position = Position.fromFen(Perft.REFERENCES.get(0).fen());
+		long key = position.key();
+		for (int i = 0; i < 3; i++) {
+			SearchResult result = search.search(position, SearchLimits.depth(4), executor);
+			assertEquals(4, result.depth());
+		}
+		assertEquals(key, position.key());
+	}
+
+	@Test
+	void needsAtLeastOneThread() {
+		assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(new TranspositionTable(1), 0));
+	}
+}
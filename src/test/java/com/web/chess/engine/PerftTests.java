@@ -0,0 +1,65 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class PerftTests {
+
+	/**
+	 * Largest node count checked per position, so the suite stays quick in a normal build. The
+	 * benchmarks module runs the deeper counts.
+	 */
+	private static final long NODE_LIMIT = 500_000;
+
+	@Test
+	void referencePositions() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			Position position = Position.fromFen(reference.fen());
+			for (int depth = 1; depth <= reference.nodes().length; depth++) {
+				long expected = reference.nodes()[depth - 1];
+				if (expected > NODE_LIMIT) {
+					break;
+				}
+				assertEquals(expected, Perft.perft(position, depth), reference.name() + " depth " + depth);
+			}
+		}
+	}
+
+	@Test
+	void parallelCountsMatchSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (Perft.Reference reference : Perft.REFERENCES) {
+				Position position = Position.fromFen(reference.fen());
+				long key = position.key();
+				// Position 3 reaches depth 5, where the tasks also split below the root
+				for (int depth = 1; depth <= reference.nodes().length; depth++) {
+					long expected = reference.nodes()[depth - 1];
+					if (expected > NODE_LIMIT * 2) {
+						break;
+					}
+					assertEquals(expected, Perft.perft(position, depth, pool), reference.name() + " depth " + depth);
+				}
+				assertEquals(key, position.key());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void parallelDivideMatchesSequential() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			Position position = Position.fromFen(Perft.REFERENCES.get(1).fen());
+			Map<String, Long> divide = Perft.divide(position, 3, pool);
+			assertEquals(Perft.divide(position, 3), divide);
+			assertEquals(97862L, divide.values().stream().mapToLong(Long::longValue).sum());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
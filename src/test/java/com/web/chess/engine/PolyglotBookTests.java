@@ -0,0 +1,136 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PolyglotBookTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	private static final String AFTER_E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+	private static final String CASTLE = "r3k2r/pppq1ppp/2np1n2/2b1p3/2B1P3/2NP1N2/PPPQ1PPP/R3K2R w KQkq - 0 1";
+
+	// Test positions and keys from the Polyglot format description
+	@Test
+	void keysMatchThePolyglotReference() {
+		assertEquals(0x463b96181691fc9cL, PolyglotBook.key(Position.fromFen(START)));
+		assertEquals(0x823c9b50fd114196L, PolyglotBook.key(Position.fromFen(AFTER_E4)));
+		assertEquals(0x0756b94461c50fb0L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2")));
+		assertEquals(0x662fafb965db29d4L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2")));
+		assertEquals(0x22a48b5a8e47ff78L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")));
+		assertEquals(0x652a607ca3f242c1L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3")));
+		assertEquals(0x00fdd303c946bdd9L, PolyglotBook.key(Position.fromFen(
+				"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4")));
+		assertEquals(0x3c8123ea7b067637L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3")));
+		assertEquals(0x5c3f9b829b279560L, PolyglotBook.key(Position.fromFen(
+				"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4")));
+	}
+
+	@Test
+	void keysFollowMadeMoves() {
+		Position position = Position.fromFen(START);
+		position.makeMove(52, 36, 0);
+		assertEquals(0x823c9b50fd114196L, PolyglotBook.key(position));
+	}
+
+	@Test
+	void findsMovesHeaviestFirst(@TempDir Path dir) throws IOException {
+		PolyglotBook book = PolyglotBook.open(writeBook(dir));
+		List<PolyglotBook.BookMove> moves = book.moves(Position.fromFen(START));
+		assertEquals(List.of("e2e4", "d2d4", "g1f3"), moves.stream().map(m -> Move.toString(m.move())).toList());
+		assertEquals(List.of(10, 5, 1), moves.stream().map(PolyglotBook.BookMove::weight).toList());
+		assertEquals("c7c5", Move.toString(book.moves(Position.fromFen(AFTER_E4)).get(0).move()));
+	}
+
+	@Test
+	void castlingIsReadAsTheKingsMove(@TempDir Path dir) throws IOException {
+		PolyglotBook book = PolyglotBook.open(writeBook(dir));
+		List<PolyglotBook.BookMove> moves = book.moves(Position.fromFen(CASTLE));
+		assertEquals(List.of("e1g1", "e1c1"), moves.stream().map(m -> Move.toString(m.move())).toList());
+		assertTrue((Move.flags(moves.get(0).move()) & Move.CASTLE) != 0);
+	}
+
+	@Test
+	void skipsIllegalEntriesAndUnknownPositions(@TempDir Path dir) throws IOException {
+		PolyglotBook book = PolyglotBook.open(writeBook(dir));
+		// The book also lists e2e5 for the start position
+		assertEquals(3, book.moves(Position.fromFen(START)).size());
+		assertTrue(book.moves(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1")).isEmpty());
+		assertEquals(Move.NONE, book.pick(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1"),
+				new SplittableRandom(1)));
+	}
+
+	@Test
+	void picksByWeight(@TempDir Path dir) throws IOException {
+		PolyglotBook book = PolyglotBook.open(writeBook(dir));
+		SplittableRandom random = new SplittableRandom(7);
+		int e4 = 0;
+		for (int i = 0; i < 1600; i++) {
+			if (Move.toString(book.pick(Position.fromFen(START), random)).equals("e2e4")) {
+				e4++;
+			}
+		}
+		// 10 of 16
+		assertTrue(e4 > 900 && e4 < 1100, "e2e4 picked " + e4 + " times");
+	}
+
+	@Test
+	void rejectsFilesThatAreNotBooks(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("broken.bin");
+		Files.write(file, new byte[20]);
+		assertThrows(IOException.class, () -> PolyglotBook.open(file));
+	}
+
+	/**
+	 * Writes a small book sorted by key, the way Polyglot does.
+	 */
+	private static Path writeBook(Path dir) throws IOException {
+		List<long[]> entries = new ArrayList<>();
+		long start = PolyglotBook.key(Position.fromFen(START));
+		entries.add(new long[] {start, bookMove("g1f3"), 1});
+		entries.add(new long[] {start, bookMove("e2e4"), 10});
+		entries.add(new long[] {start, bookMove("e2e5"), 50});
+		entries.add(new long[] {start, bookMove("d2d4"), 5});
+		long afterE4 = PolyglotBook.key(Position.fromFen(AFTER_E4));
+		entries.add(new long[] {afterE4, bookMove("e7e5"), 3});
+		entries.add(new long[] {afterE4, bookMove("c7c5"), 4});
+		long castle = PolyglotBook.key(Position.fromFen(CASTLE));
+		entries.add(new long[] {castle, bookMove("e1h1"), 2});
+		entries.add(new long[] {castle, bookMove("e1a1"), 1});
+		entries.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+
+		Path file = dir.resolve("book.bin");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			for (long[] entry : entries) {
+				out.writeLong(entry[0]);
+				out.writeShort((int) entry[1]);
+				out.writeShort((int) entry[2]);
+				out.writeInt(0);
+			}
+		}
+		return file;
+	}
+
+	private static int bookMove(String move) {
+		int fromFile = move.charAt(0) - 'a';
+		int fromRank = move.charAt(1) - '1';
+		int toFile = move.charAt(2) - 'a';
+		int toRank = move.charAt(3) - '1';
+		return toFile | toRank << 3 | fromFile << 6 | fromRank << 9;
+	}
+}
@@ -0,0 +1,117 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SearchTests {
+
+	private static SearchResult search(String fen, SearchLimits limits) {
+		return new Search(new TranspositionTable(1)).search(Position.fromFen(fen), limits);
+	}
+
+	@Test
+	void findsMateInOne() {
+		SearchResult result = search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", SearchLimits.depth(3));
+		assertEquals("a1a8", Move.toString(result.move()));
+		assertEquals(Search.MATE - 1, result.score());
+	}
+
+	@Test
+	void findsMateInTwo() {
+		// 1. Nf6+ gxf6 2. Bxf7#
+		SearchResult result = search("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1",
+				SearchLimits.depth(5));
+		assertEquals("d5f6", Move.toString(result.move()));
+		assertEquals(Search.MATE - 3, result.score());
+	}
+
+	@Test
+	void principalVariationIsTheMatingLine() {
+		Position position = Position.fromFen("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+		SearchResult result = new Search(new TranspositionTable(1)).search(position, SearchLimits.depth(5));
+		assertEquals(3, result.pv().length);
+		assertEquals(result.move(), result.pv()[0]);
+		assertEquals(2, result.mateIn());
+		// Every move of the line is legal where it is played, and the last one mates
+		MoveList legal = new MoveList();
+		for (int move : result.pv()) {
+			MoveGenerator.generateLegal(position, legal);
+			boolean found = false;
+			for (int i = 0; i < legal.size(); i++) {
+				found |= legal.get(i) == move;
+			}
+			assertTrue(found, Move.toString(move));
+			position.makeMove(move);
+		}
+		MoveGenerator.generateLegal(position, legal);
+		assertTrue(legal.isEmpty());
+	}
+
+	@Test
+	void takesAHangingQueen() {
+		SearchResult result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", SearchLimits.depth(3));
+		assertEquals("d2d5", Move.toString(result.move()));
+	}
+
+	@Test
+	void reportsSeveralLinesAfterEachDepth() {
+		List<List<SearchResult>> updates = new ArrayList<>();
+		SearchResult result = new Search(new TranspositionTable(1)).search(
+				Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"), SearchLimits.depth(3), 3, updates::add);
+		assertEquals(3, updates.size());
+		for (int depth = 1; depth <= 3; depth++) {
+			List<SearchResult> lines = updates.get(depth - 1);
+			assertEquals(3, lines.size());
+			assertEquals(depth, lines.get(0).depth());
+			assertEquals(3, lines.stream().mapToInt(SearchResult::move).distinct().count());
+			for (int i = 1; i < lines.size(); i++) {
+				assertTrue(lines.get(i).score() <= lines.get(i - 1).score());
+			}
+		}
+		assertEquals("d2d5", Move.toString(result.move()));
+		assertEquals(result.move(), updates.get(2).get(0).move());
+	}
+
+	@Test
+	void fewerLinesThanAskedWhenThereAreFewerMoves() {
+		// The king has three legal moves
+		List<List<SearchResult>> updates = new ArrayList<>();
+		new Search(new TranspositionTable(1)).search(Position.fromFen("7k/8/8/8/8/8/8/K7 b - - 0 1"),
+				SearchLimits.depth(2), 4, updates::add);
+		assertEquals(3, updates.get(1).size());
+	}
+
+	@Test
+	void avoidsAPoisonedCapture() {
+		// The rook on d5 is defended by the pawn on e6, so Qxd5 loses the queen
+		SearchResult result = search("4k3/8/4p3/3r4/8/8/3Q4/4K3 w - - 0 1", SearchLimits.depth(3));
+		assertTrue(!Move.toString(result.move()).equals("d2d5"));
+	}
+
+	@Test
+	void noMoveWhenStalemated() {
+		SearchResult result = search("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", SearchLimits.depth(4));
+		assertEquals(Move.NONE, result.move());
+		assertEquals(0, result.score());
+	}
+
+	@Test
+	void stopsAtTheNodeBudget() {
+		SearchResult result = search(Perft.REFERENCES.get(1).fen(), new SearchLimits(64, 20_000, 0));
+		assertTrue(result.nodes() < 20_000 + 1024, "nodes " + result.nodes());
+		assertTrue(result.move() != Move.NONE);
+	}
+
+	@Test
+	void leavesThePositionUnchanged() {
+		Position position = Position.fromFen(Perft.REFERENCES.get(1).fen());
+		long key = position.key();
+		new Search(new TranspositionTable(1)).search(position, SearchLimits.depth(3));
+		assertEquals(key, position.key());
+		assertEquals(0, position.undoCount());
+	}
+}
@@ -0,0 +1,86 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTests {
+
+	@Test
+	void storesAndProbes() {
+		TranspositionTable table = new TranspositionTable(1);
+		int move = Move.encode(52, 36, Move.DOUBLE_PUSH, 0);
+		table.store(0x1234_5678_9ABC_DEF0L, move, -250, 7, TranspositionTable.LOWER);
+		long data = table.probe(0x1234_5678_9ABC_DEF0L);
+		assertEquals(move, TranspositionTable.move(data));
+		assertEquals(-250, TranspositionTable.score(data));
+		assertEquals(7, TranspositionTable.depth(data));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+	}
+
+	@Test
+	void otherKeysInTheSameSlotMiss() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x0F0F_0000_0000_0042L;
+		table.store(key, Move.NONE, 10, 1, TranspositionTable.EXACT);
+		// Same low bits, so the same slot
+		assertEquals(0, table.probe(key ^ (1L << 62)));
+	}
+
+	@Test
+	void deeperResultsAreKept() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 99;
+		table.store(key, Move.NONE, 10, 8, TranspositionTable.LOWER);
+		table.store(key, Move.NONE, 20, 2, TranspositionTable.UPPER);
+		assertEquals(8, TranspositionTable.depth(table.probe(key)));
+	}
+
+	@Test
+	void bucketsHoldFourKeys() {
+		TranspositionTable table = new TranspositionTable(1);
+		for (int i = 0; i < 4; i++) {
+			table.store(0x42 | (long) i << 40, Move.NONE, i, i + 1, TranspositionTable.EXACT);
+		}
+		for (int i = 0; i < 4; i++) {
+			assertEquals(i, TranspositionTable.score(table.probe(0x42 | (long) i << 40)));
+		}
+	}
+
+	@Test
+	void fullBucketsReplaceTheShallowestEntry() {
+		TranspositionTable table = new TranspositionTable(1);
+		int[] depths = {9, 3, 7, 5};
+		for (int i = 0; i < 4; i++) {
+			table.store(0x42 | (long) i << 40, Move.NONE, 0, depths[i], TranspositionTable.EXACT);
+		}
+		table.store(0x42 | 9L << 40, Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertEquals(0, table.probe(0x42 | 1L << 40));
+		assertEquals(1, TranspositionTable.depth(table.probe(0x42 | 9L << 40)));
+	}
+
+	@Test
+	void oldGenerationsAreReplacedFirst() {
+		TranspositionTable table = new TranspositionTable(1);
+		table.store(0x42, Move.NONE, 0, 20, TranspositionTable.EXACT);
+		for (int i = 0; i < 3; i++) {
+			table.newSearch();
+		}
+		for (int i = 1; i < 4; i++) {
+			table.store(0x42 | (long) i << 40, Move.NONE, 0, 6, TranspositionTable.EXACT);
+		}
+		// 20 plies deep, but three generations old counts as -4
+		table.store(0x42 | 9L << 40, Move.NONE, 0, 2, TranspositionTable.EXACT);
+		assertEquals(0, table.probe(0x42));
+		assertEquals(6, TranspositionTable.depth(table.probe(0x42 | 1L << 40)));
+	}
+
+	@Test
+	void clearRemovesEntries() {
+		TranspositionTable table = new TranspositionTable(1);
+		table.store(77, Move.NONE, 5, 5, TranspositionTable.EXACT);
+		table.clear();
+		assertEquals(0, table.probe(77));
+		assertEquals(1 << 20, table.capacityBytes());
+	}
+}
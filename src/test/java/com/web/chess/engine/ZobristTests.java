@@ -0,0 +1,67 @@
+package com.web.chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ZobristTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * Plays every legal move to the given depth and checks the incremental key against a key
+	 * computed from scratch, and that unmakeMove restores the key and state. Covers castling,
+	 * promotion and en passant in the reference positions.
+	 */
+	private static void walk(Position position, int depth) {
+		assertEquals(position.computeKey(), position.key());
+		if (depth == 0) {
+			return;
+		}
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			long key = position.key();
+			long occupied = position.occupied();
+			int castling = position.castlingRights();
+			int ep = position.epSquare();
+			int halfmoves = position.halfmoves();
+			position.makeMove(moves.get(i));
+			walk(position, depth - 1);
+			position.unmakeMove();
+			assertEquals(key, position.key());
+			assertEquals(occupied, position.occupied());
+			assertEquals(castling, position.castlingRights());
+			assertEquals(ep, position.epSquare());
+			assertEquals(halfmoves, position.halfmoves());
+		}
+	}
+
+	@Test
+	void incrementalKeyMatchesFullRecompute() {
+		for (Perft.Reference reference : Perft.REFERENCES) {
+			walk(Position.fromFen(reference.fen()), 3);
+		}
+	}
+
+	@Test
+	void transpositionsShareKeys() {
+		Position position = Position.fromFen(START);
+		long start = position.key();
+		position.makeMove(62, 45, Position.QUEEN); // Ng1-f3
+		position.makeMove(6, 21, Position.QUEEN); // Ng8-f6
+		position.makeMove(45, 62, Position.QUEEN);
+		position.makeMove(21, 6, Position.QUEEN);
+		assertEquals(start, position.key());
+	}
+
+	@Test
+	void unusableEnPassantSquareIsIgnored() {
+		Position pushed = Position.fromFen(START);
+		pushed.makeMove(52, 36, Position.QUEEN); // e2-e4
+		Position fen = Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+		assertEquals(fen.key(), pushed.key());
+		assertNotEquals(Position.fromFen(START).key(), pushed.key());
+	}
+}
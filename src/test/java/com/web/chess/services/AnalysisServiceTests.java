@@ -0,0 +1,62 @@
+package com.web.chess.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.models.EvalRequest;
+import com.web.chess.models.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AnalysisServiceTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private final GameService games = new GameService();
+	private final AnalysisService analysis = new AnalysisService(games, new NetworkService(""),
+			4, 1, 1, 1, 1000, 1, 50, 50, 1, 1, 100, "classical");
+
+	@AfterEach
+	void tearDown() {
+		analysis.shutdown();
+	}
+
+	private boolean cached(String gameId, String fen) {
+		EvalRequest request = new EvalRequest();
+		request.gameId = gameId;
+		request.fen = fen;
+		return analysis.evaluate(request).cached;
+	}
+
+	@Test
+	void positionsWithoutHistoryAreShared() {
+		assertFalse(cached(null, START));
+		assertTrue(cached(null, START));
+	}
+
+	@Test
+	void gameHistoryKeepsResultsApart() {
+		// The knights go out and back, so the start position is on the board again
+		String gameId = Integer.toString(games.createGame(new Player()));
+		ChessBoardGUI game = games.getBoard(gameId);
+		game.setupBoard(START);
+		game.startGame();
+		int[][] moves = {{7, 6, 5, 5, -1}, {0, 6, 2, 5, 1}, {5, 5, 7, 6, -1}, {2, 5, 0, 6, 1}};
+		for (int[] move : moves) {
+			game.buttonPress(move[0], move[1], move[4]);
+			game.buttonPress(move[2], move[3], move[4]);
+		}
+		assertFalse(cached(null, START));
+		assertFalse(cached(gameId, null));
+		assertFalse(cached(gameId, null));
+		assertTrue(cached(null, START));
+	}
+
+	@Test
+	void highHalfmoveClocksAreNotShared() {
+		String fen = "4k3/8/8/8/8/8/8/R3K3 w Q - 60 80";
+		assertFalse(cached(null, fen));
+		assertFalse(cached(null, fen));
+	}
+}
@@ -0,0 +1,76 @@
+package com.web.chess.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.models.Player;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+class AnalysisStreamServiceTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private final List<String> published = new CopyOnWriteArrayList<>();
+	private final GameService games = new GameService();
+	private AnalysisStreamService streams;
+
+	@BeforeEach
+	void setUp() {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			published.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+			return true;
+		});
+		// One thread and a minute per position: without slices the first game would keep it
+		streams = new AnalysisStreamService(template, games, 1, 64, 60_000, 1, 100, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		streams.shutdown();
+	}
+
+	private String watchNewGame(String session) {
+		String gameId = Integer.toString(games.createGame(new Player()));
+		ChessBoardGUI game = games.getBoard(gameId);
+		game.setupBoard(START);
+		game.startGame();
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		accessor.setSessionId(session);
+		accessor.setSubscriptionId("0");
+		accessor.setDestination(AnalysisStreamService.TOPIC_PREFIX + gameId);
+		Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+		streams.onSubscribe(new SessionSubscribeEvent(this, message));
+		return AnalysisStreamService.TOPIC_PREFIX + gameId;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "timed out");
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	void watchedGamesTakeTurns() throws InterruptedException {
+		String first = watchNewGame("a");
+		await(() -> published.contains(first));
+		String second = watchNewGame("b");
+		await(() -> published.contains(second));
+		// The first game goes on once the second has had its slice
+		int seen = published.size();
+		await(() -> published.subList(seen, published.size()).contains(first));
+	}
+}
@@ -0,0 +1,189 @@
+package com.web.chess.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.chess.engine.Perft;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchServiceTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final BatchService batch = new BatchService(4, 8, 1);
+
+	@AfterEach
+	void tearDown() {
+		batch.shutdown();
+	}
+
+	private List<JsonNode> process(String body, BatchService.Format format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		batch.process(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, out);
+		List<JsonNode> results = new ArrayList<>();
+		for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+			results.add(mapper.readTree(line));
+		}
+		return results;
+	}
+
+	@Test
+	void ndjsonPositions() throws IOException {
+		List<JsonNode> results = process("""
+				{"id": "start", "fen": "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}
+
+				{"id": 7, "fen": "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"}
+				{"fen": "k7/2Q5/1K6/8/8/8/8/8 b - - 0 1"}
+				{"fen": "8/8/8/8/8/8/8/8 w - - 0 1"}
+				{"fen":
+				""", BatchService.Format.NDJSON);
+		assertEquals(5, results.size());
+
+		JsonNode start = results.get(0);
+		assertEquals(1, start.get("line").asInt());
+		assertEquals("start", start.get("id").asText());
+		assertTrue(start.get("valid").asBoolean());
+		assertEquals("w", start.get("sideToMove").asText());
+		assertEquals("ongoing", start.get("status").asText());
+		assertEquals(20, start.get("moves").size());
+
+		JsonNode mated = results.get(1);
+		assertEquals(3, mated.get("line").asInt());
+		assertEquals("7", mated.get("id").asText());
+		assertTrue(mated.get("check").asBoolean());
+		assertEquals("checkmate", mated.get("status").asText());
+		assertEquals(0, mated.get("moves").size());
+
+		JsonNode stalemate = results.get(2);
+		assertFalse(stalemate.get("check").asBoolean());
+		assertEquals("stalemate", stalemate.get("status").asText());
+
+		JsonNode noKings = results.get(3);
+		assertFalse(noKings.get("valid").asBoolean());
+		assertEquals("White has no king (at character 0)", noKings.get("error").asText());
+		assertNull(noKings.get("moves"));
+
+		assertFalse(results.get(4).get("valid").asBoolean());
+		assertTrue(results.get(4).get("error").asText().startsWith("Invalid JSON"));
+	}
+
+	@Test
+	void epdPositions() throws IOException {
+		List<JsonNode> results = process("""
+				# Comments and blank lines are skipped
+
+				4k3/8/8/8/8/8/8/4K2R w K - bm Rh8+; id "rook; check";
+				8/8/8/8/8/2k5/8/2N1K3 w - - 3 60
+				8/8/8/8/8/2k5/8/2N1K3 w - - bm
+				""", BatchService.Format.EPD);
+		assertEquals(3, results.size());
+		assertEquals(3, results.get(0).get("line").asInt());
+		assertEquals("rook; check", results.get(0).get("id").asText());
+		assertEquals("bm Rh8+; id \"rook; check\";", results.get(0).get("operations").asText());
+		assertEquals("4k3/8/8/8/8/8/8/4K2R w K - 0 1", results.get(0).get("fen").asText());
+		assertEquals("8/8/8/8/8/2k5/8/2N1K3 w - - 3 60", results.get(1).get("fen").asText());
+		assertNull(results.get(1).get("id"));
+		assertTrue(results.get(2).get("valid").asBoolean());
+		assertEquals("bm", results.get(2).get("operations").asText());
+	}
+
+	@Test
+	void resultsKeepTheInputOrder() throws IOException {
+		StringBuilder body = new StringBuilder();
+		int count = 2000;
+		for (int i = 0; i < count; i++) {
+			body.append(Perft.REFERENCES.get(i % Perft.REFERENCES.size()).fen()).append('\n');
+		}
+		List<JsonNode> results = process(body.toString(), BatchService.Format.EPD);
+		assertEquals(count, results.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i + 1, results.get(i).get("line").asInt());
+			assertEquals(Perft.REFERENCES.get(i % Perft.REFERENCES.size()).fen(), results.get(i).get("fen").asText());
+		}
+	}
+
+	@Test
+	void readingStopsWhenTheClientGoesAway() {
+		// Fails on the third write; with a window of 8 reading must stop long before the end
+		AtomicInteger writes = new AtomicInteger();
+		OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				if (b == '\n' && writes.incrementAndGet() == 3) {
+					throw new IOException("Connection reset");
+				}
+			}
+		};
+		AtomicInteger read = new AtomicInteger();
+		String line = Perft.REFERENCES.get(0).fen() + "\n";
+		ByteArrayInputStream in = new ByteArrayInputStream(line.repeat(100_000).getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public synchronized int read(byte[] buffer, int offset, int length) {
+				read.incrementAndGet();
+				return super.read(buffer, offset, Math.min(length, line.length()));
+			}
+		};
+		IOException exception = assertThrows(IOException.class, () -> batch.process(in, BatchService.Format.EPD, out));
+		assertEquals("Connection reset", exception.getMessage());
+		assertTrue(read.get() < 1000);
+	}
+
+	@Test
+	void longLinesAreSkippedWhileReading() throws IOException {
+		// 100 MB on one line, generated as it is read; the line is never held in memory
+		long length = 100_000_000;
+		String next = "\r\n" + Perft.REFERENCES.get(0).fen() + "\r\n";
+		InputStream in = new InputStream() {
+			private long position;
+
+			@Override
+			public int read() {
+				long at = position++;
+				return at < length ? 'x' : at - length < next.length() ? next.charAt((int) (at - length)) : -1;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int count) throws IOException {
+				if (position >= length) {
+					return super.read(buffer, offset, Math.min(count, 1));
+				}
+				int filled = (int) Math.min(count, length - position);
+				Arrays.fill(buffer, offset, offset + filled, (byte) 'x');
+				position += filled;
+				return filled;
+			}
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		batch.process(in, BatchService.Format.EPD, out);
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, lines.length);
+		JsonNode tooLong = mapper.readTree(lines[0]);
+		assertFalse(tooLong.get("valid").asBoolean());
+		assertEquals("Line is longer than 4096 characters", tooLong.get("error").asText());
+		JsonNode after = mapper.readTree(lines[1]);
+		assertEquals(2, after.get("line").asInt());
+		assertEquals(Perft.REFERENCES.get(0).fen(), after.get("fen").asText());
+	}
+
+	@Test
+	void concurrentBatchesAreCapped() {
+		batch.open(new ByteArrayInputStream(new byte[0]), BatchService.Format.EPD);
+		assertThrows(IllegalStateException.class,
+				() -> batch.open(new ByteArrayInputStream(new byte[0]), BatchService.Format.EPD));
+	}
+}
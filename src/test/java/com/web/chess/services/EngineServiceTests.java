@@ -0,0 +1,103 @@
+package com.web.chess.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.web.chess.ChessBoardGUI;
+import com.web.chess.engine.Move;
+import com.web.chess.engine.MoveGenerator;
+import com.web.chess.engine.MoveList;
+import com.web.chess.models.GameMode;
+import com.web.chess.models.Player;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+class EngineServiceTests {
+
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private EngineService engine;
+	private ChessBoardGUI game;
+
+	@BeforeEach
+	void setUp() {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+		AnalysisStreamService streams = new AnalysisStreamService(template, new GameService(), 1, 1, 0, 1, 0, 1);
+		engine = new EngineService(template, new BookService(""), new NetworkService(""), streams, "classical", 1, 1, 64, 0, 200, true, 60_000);
+		game = new ChessBoardGUI(new Player(), GameMode.ENGINE);
+		game.setupBoard(START);
+		game.startGame();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	/**
+	 * Plays a move for the human (white) and waits for the engine's reply.
+	 */
+	private void playAndWait(int move) throws InterruptedException {
+		game.buttonPress(Move.from(move) / 8, Move.from(move) % 8, -1);
+		game.buttonPress(Move.to(move) / 8, Move.to(move) % 8, -1);
+		engine.requestMove("1", game);
+		await(() -> !game.isEngineTurn());
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "timed out");
+			Thread.sleep(10);
+		}
+	}
+
+	private int anyMoveBut(int move) {
+		MoveList legal = new MoveList();
+		MoveGenerator.generateLegal(game.positionCopy(), legal);
+		for (int i = 0; i < legal.size(); i++) {
+			if (legal.get(i) != move && Move.promotion(legal.get(i)) == 0) {
+				return legal.get(i);
+			}
+		}
+		throw new AssertionError("no other move");
+	}
+
+	@Test
+	void expectedReplyIsAnsweredFromThePonderSearch() throws InterruptedException {
+		playAndWait(Move.encode(52, 36, Move.DOUBLE_PUSH, 0));
+		await(() -> engine.ponderMove("1") != Move.NONE);
+		int expected = engine.ponderMove("1");
+		playAndWait(expected);
+		assertEquals(1, engine.ponderHits());
+	}
+
+	@Test
+	void otherRepliesAreSearchedAfresh() throws InterruptedException {
+		playAndWait(Move.encode(52, 36, Move.DOUBLE_PUSH, 0));
+		await(() -> engine.ponderMove("1") != Move.NONE);
+		int other = anyMoveBut(engine.ponderMove("1"));
+		playAndWait(other);
+		assertEquals(0, engine.ponderHits());
+		// The engine ponders again after its new move
+		await(() -> engine.ponderMove("1") != Move.NONE);
+		assertNotEquals(Move.NONE, engine.ponderMove("1"));
+	}
+
+	@Test
+	void searchesStopPondersInsteadOfQueueing() throws InterruptedException {
+		// One engine thread, pondering for game 1
+		playAndWait(Move.encode(52, 36, Move.DOUBLE_PUSH, 0));
+		await(() -> engine.ponderMove("1") != Move.NONE);
+		ChessBoardGUI other = new ChessBoardGUI(new Player(), GameMode.ENGINE);
+		other.setupBoard("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1");
+		other.startGame();
+		engine.requestMove("2", other);
+		assertEquals(Move.NONE, engine.ponderMove("1"));
+		await(() -> !other.isEngineTurn());
+	}
+}
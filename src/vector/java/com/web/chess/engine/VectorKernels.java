@@ -0,0 +1,79 @@
+package com.web.chess.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the Vector API, at the widest shape the CPU supports. The accumulators are added up
+ * sixteen-bit lanes at a time; the dense layers widen to thirty-two bits so the sums cannot
+ * overflow. Lengths that are not a multiple of the vector width finish with a scalar tail.
+ *
+ * Kept out of src/main/java so the default build does not need the incubator module; the vector
+ * profile compiles it. Only loaded, by reflection, from Kernels.best(), after it has checked that
+ * jdk.incubator.vector is present.
+ */
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void clip(short[] accumulator, int max, int[] output, int outputOffset, int length) {
+        int parts = SHORTS.length() / INTS.length();
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, accumulator, i).max((short) 0).min((short) max);
+            for (int part = 0; part < parts; part++) {
+                ((IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part))
+                        .intoArray(output, outputOffset + i + part * INTS.length());
+            }
+        }
+        for (; i < length; i++) {
+            output[outputOffset + i] = Math.max(0, Math.min(accumulator[i], max));
+        }
+    }
+
+    @Override
+    public int dot(int[] input, int[] weights, int weightOffset, int length) {
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            sums = IntVector.fromArray(INTS, input, i)
+                    .mul(IntVector.fromArray(INTS, weights, weightOffset + i))
+                    .add(sums);
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += input[i] * weights[weightOffset + i];
+        }
+        return sum;
+    }
+}